@@ -0,0 +1,90 @@
+package com.yue.websocket.benchmark;
+
+import com.yue.websocket.common.utils.ThreadUtils;
+import com.yue.websocket.config.WebSocketProperties;
+import com.yue.websocket.sever.InboundDispatcher;
+import lombok.extern.slf4j.Slf4j;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @ProjectName: spring-boot-websocket
+ * @Package: com.yue.websocket.benchmark
+ * @ClassName: BlockingHandlerBenchmark
+ * @Author: YUE
+ * @Description: 阻塞型消息处理的负载测试：每个会话发一条消息，处理时阻塞blockMillis(模拟数据库/Redis调用)，
+ * 测量全部处理完的耗时。platform为CPU核数*2的平台线程池，virtual为每条消息一个虚拟线程；
+ * JDK 21以下virtual自动退回平台线程，两组结果应基本相同
+ * 运行：mvn -Pbenchmark test-compile exec:exec -Djmh.args="BlockingHandlerBenchmark"
+ * @Date: 2026/10/17 19:10
+ * @Version: 1.0
+ */
+@Slf4j
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BlockingHandlerBenchmark {
+
+    @Param({"platform", "virtual"})
+    public String mode;
+
+    @Param({"1000", "10000"})
+    public int sessions;
+
+    @Param({"5"})
+    public int blockMillis;
+
+    private InboundDispatcher dispatcher;
+
+    @Setup
+    public void setUp() {
+        WebSocketProperties properties = new WebSocketProperties();
+        WebSocketProperties.Dispatch dispatch = properties.getDispatch();
+        dispatch.setVirtualThreads("virtual".equals(mode));
+        dispatch.setMaxInFlight(sessions);
+        dispatcher = new InboundDispatcher(properties);
+        if (dispatch.isVirtualThreads() && !ThreadUtils.isVirtualThreadSupported()) {
+            log.warn("当前JDK不支持虚拟线程，virtual组使用平台线程");
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        dispatcher.shutdown();
+    }
+
+    @Benchmark
+    public void blockingHandlers(Blackhole blackhole) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(sessions);
+        for (int i = 0; i < sessions; i++) {
+            String sessionId = String.valueOf(i);
+            blackhole.consume(dispatcher.dispatch(sessionId, () -> {
+                try {
+                    Thread.sleep(blockMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }));
+        }
+        done.await();
+    }
+}
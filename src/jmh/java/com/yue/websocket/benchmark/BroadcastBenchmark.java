@@ -0,0 +1,78 @@
+package com.yue.websocket.benchmark;
+
+import com.yue.websocket.config.WebSocketProperties;
+import com.yue.websocket.sever.MessageTracer;
+import com.yue.websocket.sever.OutboundMessage;
+import com.yue.websocket.sever.SessionRegistry;
+import com.yue.websocket.sever.SessionSender;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * @ProjectName: spring-boot-websocket
+ * @Package: com.yue.websocket.benchmark
+ * @ClassName: BroadcastBenchmark
+ * @Author: YUE
+ * @Description: 群发吞吐：从提交群发到最后一个会话写出的耗时
+ * @Date: 2026/10/17 18:40
+ * @Version: 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BroadcastBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int sessions;
+
+    private SessionRegistry registry;
+
+    private MessageTracer tracer;
+
+    private final AtomicReference<CountDownLatch> delivered = new AtomicReference<>();
+
+    private final OutboundMessage message = OutboundMessage.of("{\"storeId\":8,\"count\":123456}");
+
+    @Setup
+    public void setUp() {
+        WebSocketProperties properties = new WebSocketProperties();
+        tracer = new MessageTracer(properties);
+        registry = new SessionRegistry(properties, tracer);
+        Runnable onSend = () -> delivered.get().countDown();
+        for (int i = 0; i < sessions; i++) {
+            registry.register(new SessionSender(StubSessions.newSession(String.valueOf(i), onSend),
+                    properties.getSend().getQueueCapacity(), properties.getSend().getOverflowPolicy()));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        registry.shutdown();
+        tracer.shutdown();
+    }
+
+    @Benchmark
+    public void broadcast() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(sessions);
+        delivered.set(latch);
+        registry.broadcast(message);
+        latch.await();
+    }
+}
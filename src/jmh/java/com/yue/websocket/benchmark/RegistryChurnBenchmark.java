@@ -0,0 +1,79 @@
+package com.yue.websocket.benchmark;
+
+import com.yue.websocket.config.WebSocketProperties;
+import com.yue.websocket.sever.MessageTracer;
+import com.yue.websocket.sever.SessionRegistry;
+import com.yue.websocket.sever.SessionSender;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @ProjectName: spring-boot-websocket
+ * @Package: com.yue.websocket.benchmark
+ * @ClassName: RegistryChurnBenchmark
+ * @Author: YUE
+ * @Description: 会话注册/注销的吞吐，模拟断线重连时的注册表抖动
+ * @Date: 2026/10/17 18:40
+ * @Version: 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class RegistryChurnBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int sessions;
+
+    private SessionRegistry registry;
+
+    private MessageTracer tracer;
+
+    private SessionSender[] senders;
+
+    @Setup
+    public void setUp() {
+        WebSocketProperties properties = new WebSocketProperties();
+        tracer = new MessageTracer(properties);
+        registry = new SessionRegistry(properties, tracer);
+        senders = new SessionSender[sessions];
+        for (int i = 0; i < sessions; i++) {
+            senders[i] = new SessionSender(StubSessions.newSession(String.valueOf(i), () -> {
+            }), properties.getSend().getQueueCapacity(), properties.getSend().getOverflowPolicy());
+            registry.register(senders[i]);
+            registry.subscribe(senders[i], String.valueOf(i % 100));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        registry.shutdown();
+        tracer.shutdown();
+    }
+
+    @Benchmark
+    public SessionSender reconnect() {
+        SessionSender sender = senders[ThreadLocalRandom.current().nextInt(sessions)];
+        registry.unregister(sender.getId());
+        registry.register(sender);
+        registry.subscribe(sender, String.valueOf(Integer.parseInt(sender.getId()) % 100));
+        return sender;
+    }
+}
@@ -0,0 +1,81 @@
+package com.yue.websocket.benchmark;
+
+import com.alibaba.fastjson.JSON;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Data;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @ProjectName: spring-boot-websocket
+ * @Package: com.yue.websocket.benchmark
+ * @ClassName: SerializationBenchmark
+ * @Author: YUE
+ * @Description: 推送内容编码：FastJSON与Jackson对比
+ * @Date: 2026/10/17 18:40
+ * @Version: 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private Payload payload;
+
+    @Setup
+    public void setUp() {
+        payload = new Payload();
+        payload.setMerCode("100000");
+        payload.setChildMerCode("10000001");
+        payload.setStoreId(8);
+        payload.setCount(123456L);
+        payload.setPrice(12.5D);
+        payload.setUpdateTime("2021-07-30 10:12:00");
+    }
+
+    @Benchmark
+    public String fastjson() {
+        return JSON.toJSONString(payload);
+    }
+
+    @Benchmark
+    public String jackson() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(payload);
+    }
+
+    @Benchmark
+    public byte[] fastjsonBytes() {
+        return JSON.toJSONBytes(payload);
+    }
+
+    @Benchmark
+    public byte[] jacksonBytes() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(payload);
+    }
+
+    @Data
+    public static class Payload {
+        private String merCode;
+        private String childMerCode;
+        private int storeId;
+        private long count;
+        private double price;
+        private String updateTime;
+    }
+}
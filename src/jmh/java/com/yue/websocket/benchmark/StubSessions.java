@@ -0,0 +1,54 @@
+package com.yue.websocket.benchmark;
+
+import javax.websocket.RemoteEndpoint;
+import javax.websocket.SendHandler;
+import javax.websocket.SendResult;
+import javax.websocket.Session;
+import java.lang.reflect.Proxy;
+
+/**
+ * @ProjectName: spring-boot-websocket
+ * @Package: com.yue.websocket.benchmark
+ * @ClassName: StubSessions
+ * @Author: YUE
+ * @Description: 基准测试用的Session/RemoteEndpoint桩：sendText立即完成，并回调onSend
+ * @Date: 2026/10/17 18:40
+ * @Version: 1.0
+ */
+final class StubSessions {
+
+    private static final SendResult OK = new SendResult();
+
+    private StubSessions() {
+    }
+
+    static Session newSession(String id, Runnable onSend) {
+        RemoteEndpoint.Async async = (RemoteEndpoint.Async) Proxy.newProxyInstance(
+                StubSessions.class.getClassLoader(), new Class<?>[]{RemoteEndpoint.Async.class},
+                (proxy, method, args) -> {
+                    if ("sendText".equals(method.getName()) && args.length == 2 && args[1] instanceof SendHandler) {
+                        onSend.run();
+                        ((SendHandler) args[1]).onResult(OK);
+                    }
+                    return null;
+                });
+        return (Session) Proxy.newProxyInstance(
+                StubSessions.class.getClassLoader(), new Class<?>[]{Session.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getId":
+                            return id;
+                        case "getAsyncRemote":
+                            return async;
+                        case "isOpen":
+                            return true;
+                        case "hashCode":
+                            return id.hashCode();
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                            return null;
+                    }
+                });
+    }
+}
@@ -0,0 +1,231 @@
+package com.yue.websocket.cluster;
+
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONException;
+import com.alibaba.fastjson.JSONObject;
+import com.yue.websocket.common.utils.ThreadUtils;
+import com.yue.websocket.config.WebSocketProperties;
+import com.yue.websocket.sever.OutboundMessage;
+import com.yue.websocket.sever.SessionRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * @ProjectName: spring-boot-websocket
+ * @Package: com.yue.websocket.cluster
+ * @ClassName: ClusterBus
+ * @Author: YUE
+ * @Description: 集群消息总线：本节点直接投递，其他节点通过Redis发布订阅收到后各自投递给本地会话
+ * 短时间内的多条消息合并成一帧发布：{"n":"节点ID","m":[["主题","内容"],...]}，群发时主题为null
+ * 可靠投递的消息带第三个元素1：["主题","内容",1]，由接收节点的可靠投递编号后再发给本地会话
+ * @Date: 2026/10/17 13:10
+ * @Version: 1.0
+ */
+@Slf4j
+@Component
+public class ClusterBus implements MessageListener {
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    private final SessionRegistry sessionRegistry;
+
+    private final WebSocketProperties.Cluster cluster;
+
+    private final String nodeId;
+
+    /**
+     * 待发布的消息，每个元素为[主题, 内容]，可靠投递的消息为[主题, 内容, "1"]
+     */
+    private final Queue<String[]> pending = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger pendingCount = new AtomicInteger();
+
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    private ScheduledExecutorService flusher;
+
+    /**
+     * 收到其他节点可靠投递消息时的处理，参数为主题和内容
+     */
+    private volatile BiConsumer<String, String> reliableListener;
+
+    public ClusterBus(StringRedisTemplate stringRedisTemplate, SessionRegistry sessionRegistry, WebSocketProperties properties) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.sessionRegistry = sessionRegistry;
+        this.cluster = properties.getCluster();
+        this.nodeId = StringUtils.isNotBlank(cluster.getNodeId())
+                ? cluster.getNodeId() : UUID.randomUUID().toString().replace("-", "").substring(0, 12);
+    }
+
+    @PostConstruct
+    public void init() {
+        if (cluster.isEnabled()) {
+            flusher = Executors.newSingleThreadScheduledExecutor(ThreadUtils.newThreadFactory("ws-cluster-", false));
+            log.info("websocket集群总线已开启，节点ID：{}，频道：{}", nodeId, cluster.getChannel());
+        }
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public boolean isEnabled() {
+        return cluster.isEnabled();
+    }
+
+    /**
+     * 集群范围发布消息
+     *
+     * @param topic:   主题，为null时群发
+     * @param message: 消息内容
+     */
+    public void publish(String topic, String message) {
+        deliver(topic, OutboundMessage.of(message));
+        forward(topic, message, false);
+    }
+
+    /**
+     * 只发给其他节点，不投递本地会话
+     *
+     * @param topic:    主题，为null时群发
+     * @param message:  消息内容
+     * @param reliable: 是否交给其他节点的可靠投递处理
+     */
+    public void forward(String topic, String message, boolean reliable) {
+        if (!cluster.isEnabled()) {
+            return;
+        }
+        pending.offer(reliable ? new String[]{topic, message, "1"} : new String[]{topic, message});
+        if (pendingCount.incrementAndGet() >= cluster.getBatchSize()) {
+            flusher.execute(this::flush);
+        } else if (flushScheduled.compareAndSet(false, true)) {
+            flusher.schedule(this::flush, cluster.getBatchWindowMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 直接发给指定节点，不经过集群广播频道
+     *
+     * @param nodeId:  目标节点
+     * @param topic:   主题
+     * @param message: 消息内容
+     */
+    public void publishToNode(String nodeId, String topic, String message) {
+        JSONArray entry = new JSONArray(2);
+        entry.add(topic);
+        entry.add(message);
+        JSONArray batch = new JSONArray(1);
+        batch.add(entry);
+        send(nodeChannel(nodeId), batch);
+    }
+
+    public void setReliableListener(BiConsumer<String, String> reliableListener) {
+        this.reliableListener = reliableListener;
+    }
+
+    /**
+     * 节点专属频道，点对点推送使用
+     */
+    public String nodeChannel(String nodeId) {
+        return cluster.getChannel() + ":node:" + nodeId;
+    }
+
+    /**
+     * 把积攒的消息合并成一帧发布出去
+     */
+    public void flush() {
+        flushScheduled.set(false);
+        while (true) {
+            JSONArray batch = new JSONArray();
+            String[] item;
+            while (batch.size() < cluster.getBatchSize() && (item = pending.poll()) != null) {
+                pendingCount.decrementAndGet();
+                JSONArray entry = new JSONArray(item.length);
+                entry.add(item[0]);
+                entry.add(item[1]);
+                if (item.length > 2) {
+                    entry.add(1);
+                }
+                batch.add(entry);
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            send(cluster.getChannel(), batch);
+        }
+    }
+
+    /**
+     * 发布一帧消息到指定频道
+     */
+    protected void send(String channel, JSONArray batch) {
+        JSONObject frame = new JSONObject();
+        frame.put("n", nodeId);
+        frame.put("m", batch);
+        try {
+            stringRedisTemplate.convertAndSend(channel, frame.toJSONString());
+        } catch (Exception e) {
+            log.error("发布集群消息到频道{}异常：{}", channel, e.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        JSONObject frame;
+        try {
+            frame = JSONObject.parseObject(new String(message.getBody(), StandardCharsets.UTF_8));
+        } catch (JSONException e) {
+            log.warn("无法解析的集群消息");
+            return;
+        }
+        if (frame == null || nodeId.equals(frame.getString("n"))) {
+            return;
+        }
+        JSONArray batch = frame.getJSONArray("m");
+        if (batch == null) {
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            JSONArray entry = batch.getJSONArray(i);
+            BiConsumer<String, String> listener = reliableListener;
+            if (entry.size() > 2 && listener != null) {
+                listener.accept(entry.getString(0), entry.getString(1));
+            } else {
+                deliver(entry.getString(0), OutboundMessage.of(entry.getString(1)));
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (flusher != null) {
+            flusher.execute(this::flush);
+            flusher.shutdown();
+        }
+    }
+
+    private void deliver(String topic, OutboundMessage message) {
+        if (topic == null) {
+            sessionRegistry.broadcast(message);
+        } else {
+            sessionRegistry.publish(topic, message);
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package com.yue.websocket.cluster;
+
+import com.yue.websocket.common.utils.ThreadUtils;
+import com.yue.websocket.config.WebSocketProperties;
+import com.yue.websocket.sever.OutboundMessage;
+import com.yue.websocket.sever.SessionRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @ProjectName: spring-boot-websocket
+ * @Package: com.yue.websocket.cluster
+ * @ClassName: SessionDirectory
+ * @Author: YUE
+ * @Description: 集群会话目录：记录参数(主题)所在的节点，点对点推送时直接路由到目标节点
+ * Redis中每个参数一个hash：websocket:directory:{param} -> {nodeId: 最后心跳时间戳}
+ * 每个节点只写自己的字段，心跳刷新时间戳；节点宕机后其字段不再刷新，查询时超过过期时间的字段被忽略并删除
+ * (节点间时钟偏差需远小于过期时间)
+ * 本节点某参数的第一个会话登记时立即写入，连上后马上就能被路由到；注销定时批量写入
+ * @Date: 2026/10/17 14:20
+ * @Version: 1.0
+ */
+@Slf4j
+@Component
+public class SessionDirectory {
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    private final SessionRegistry sessionRegistry;
+
+    private final ClusterBus clusterBus;
+
+    private final WebSocketProperties.Cluster cluster;
+
+    /**
+     * 本节点的登记情况：参数 -> 会话ID
+     */
+    private final Map<String, Set<String>> local = new ConcurrentHashMap<>();
+
+    /**
+     * 待写入Redis的登记/注销操作，每个元素为[参数, 是否登记]，定时合并成一次pipeline
+     */
+    private final Queue<Object[]> changes = new ConcurrentLinkedQueue<>();
+
+    private ScheduledExecutorService scheduler;
+
+    public SessionDirectory(StringRedisTemplate stringRedisTemplate, SessionRegistry sessionRegistry,
+                            ClusterBus clusterBus, WebSocketProperties properties) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.sessionRegistry = sessionRegistry;
+        this.clusterBus = clusterBus;
+        this.cluster = properties.getCluster();
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!cluster.isEnabled()) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(ThreadUtils.newThreadFactory("ws-directory-", false));
+        long flushMillis = cluster.getDirectoryFlushMillis();
+        scheduler.scheduleWithFixedDelay(this::flush, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+        long heartbeatSeconds = Math.max(1, cluster.getDirectoryTtlSeconds() / 3);
+        scheduler.scheduleWithFixedDelay(this::heartbeat, heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 登记会话，本节点该参数的第一个会话会同步写入Redis
+     *
+     * @param param:     参数(主题)
+     * @param sessionId: 会话ID
+     */
+    public void register(String param, String sessionId) {
+        if (!cluster.isEnabled() || param == null) {
+            return;
+        }
+        boolean[] first = new boolean[1];
+        local.compute(param, (k, sessions) -> {
+            if (sessions == null) {
+                sessions = ConcurrentHashMap.newKeySet();
+                // 本节点第一个会话时登记，在compute内入队保证与注销的先后顺序
+                changes.offer(new Object[]{param, Boolean.TRUE});
+                first[0] = true;
+            }
+            sessions.add(sessionId);
+            return sessions;
+        });
+        if (first[0]) {
+            // 不等定时写入，否则刚连上时的点对点推送查不到本节点而丢失；flush按入队顺序写，不会越过之前的注销
+            flush();
+        }
+    }
+
+    /**
+     * 注销会话
+     */
+    public void unregister(String param, String sessionId) {
+        if (!cluster.isEnabled() || param == null) {
+            return;
+        }
+        local.computeIfPresent(param, (k, sessions) -> {
+            sessions.remove(sessionId);
+            if (!sessions.isEmpty()) {
+                return sessions;
+            }
+            // 本节点最后一个会话离开时注销
+            changes.offer(new Object[]{param, Boolean.FALSE});
+            return null;
+        });
+    }
+
+    /**
+     * 查询参数所在的节点
+     *
+     * @param param: 参数(主题)
+     * @return: 节点ID集合
+     */
+    public Set<String> lookup(String param) {
+        Set<String> nodes = new HashSet<>();
+        if (!cluster.isEnabled()) {
+            nodes.add(clusterBus.getNodeId());
+            return nodes;
+        }
+        String key = key(param);
+        try {
+            Map<Object, Object> entries = stringRedisTemplate.opsForHash().entries(key);
+            long expireBefore = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(cluster.getDirectoryTtlSeconds());
+            List<Object> stale = new ArrayList<>();
+            for (Map.Entry<Object, Object> entry : entries.entrySet()) {
+                if (heartbeatOf(entry.getValue()) >= expireBefore) {
+                    nodes.add(String.valueOf(entry.getKey()));
+                } else {
+                    stale.add(entry.getKey());
+                }
+            }
+            if (!stale.isEmpty()) {
+                stringRedisTemplate.opsForHash().delete(key, stale.toArray());
+            }
+        } catch (Exception e) {
+            log.error("查询会话目录{}异常：{}", param, e.getMessage());
+        }
+        return nodes;
+    }
+
+    /**
+     * 点对点推送：只发给持有该参数连接的节点，不做集群广播
+     *
+     * @param param:   参数(主题)
+     * @param message: 消息内容
+     */
+    public void sendTo(String param, String message) {
+        for (String nodeId : lookup(param)) {
+            if (clusterBus.getNodeId().equals(nodeId)) {
+                sessionRegistry.publish(param, OutboundMessage.of(message));
+            } else {
+                clusterBus.publishToNode(nodeId, param, message);
+            }
+        }
+    }
+
+    /**
+     * 把积攒的登记/注销操作合并成一次pipeline写入
+     * 登记线程和定时任务都会调用，串行执行，避免两次pipeline互相越过打乱登记与注销的顺序
+     */
+    public synchronized void flush() {
+        if (changes.isEmpty()) {
+            return;
+        }
+        String nodeId = clusterBus.getNodeId();
+        String now = String.valueOf(System.currentTimeMillis());
+        long ttl = cluster.getDirectoryTtlSeconds();
+        try {
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection conn = (StringRedisConnection) connection;
+                Object[] change;
+                while ((change = changes.poll()) != null) {
+                    String key = key((String) change[0]);
+                    if ((Boolean) change[1]) {
+                        conn.hSet(key, nodeId, now);
+                        conn.expire(key, ttl);
+                    } else {
+                        conn.hDel(key, nodeId);
+                    }
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            log.error("写入会话目录异常：{}", e.getMessage());
+        }
+    }
+
+    /**
+     * 心跳：刷新本节点所有登记的时间戳并续期，Redis重启或key过期后也能恢复
+     * 整个hash的过期只用于所有节点都离开后回收key，单个节点是否存活以字段时间戳为准
+     */
+    public void heartbeat() {
+        if (local.isEmpty()) {
+            return;
+        }
+        String nodeId = clusterBus.getNodeId();
+        String now = String.valueOf(System.currentTimeMillis());
+        long ttl = cluster.getDirectoryTtlSeconds();
+        try {
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection conn = (StringRedisConnection) connection;
+                for (String param : local.keySet()) {
+                    String key = key(param);
+                    conn.hSet(key, nodeId, now);
+                    conn.expire(key, ttl);
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            log.error("会话目录心跳异常：{}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdown();
+        for (String param : local.keySet()) {
+            changes.offer(new Object[]{param, Boolean.FALSE});
+        }
+        flush();
+    }
+
+    private String key(String param) {
+        return cluster.getDirectoryKeyPrefix() + param;
+    }
+
+    /**
+     * 字段值为心跳时间戳，旧格式或无法解析的值视为已过期
+     */
+    private static long heartbeatOf(Object value) {
+        try {
+            return Long.parseLong(String.valueOf(value));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
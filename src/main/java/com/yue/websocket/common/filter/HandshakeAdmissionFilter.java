@@ -0,0 +1,86 @@
+package com.yue.websocket.common.filter;
+
+import com.yue.websocket.sever.HandshakeAdmission;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UriUtils;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * @ProjectName: spring-boot-websocket
+ * @Package: com.yue.websocket.common.filter
+ * @ClassName: HandshakeAdmissionFilter
+ * @Author: YUE
+ * @Description: WebSocket握手准入过滤器，排在Tomcat的WsFilter之前，被拒绝的握手直接返回503
+ * 只处理带Upgrade: websocket的请求，普通HTTP接口不受影响
+ * @Date: 2026/10/17 23:20
+ * @Version: 1.0
+ */
+@Slf4j
+public class HandshakeAdmissionFilter extends OncePerRequestFilter {
+
+    private final HandshakeAdmission admission;
+
+    private final String pathPrefix;
+
+    private final boolean trustForwardedFor;
+
+    private final String retryAfterSeconds;
+
+    public HandshakeAdmissionFilter(HandshakeAdmission admission, String pathPrefix, boolean trustForwardedFor,
+                                    int retryAfterSeconds) {
+        this.admission = admission;
+        this.pathPrefix = pathPrefix;
+        this.trustForwardedFor = trustForwardedFor;
+        this.retryAfterSeconds = String.valueOf(retryAfterSeconds);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !admission.isEnabled() || !"websocket".equalsIgnoreCase(request.getHeader(HttpHeaders.UPGRADE));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        HandshakeAdmission.Rejection rejection = admission.admit(clientIp(request), param(request));
+        if (rejection == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        // 重连风暴时会大量出现，不逐条打印
+        if (log.isDebugEnabled()) {
+            log.debug("拒绝握手：{}，原因：{}", request.getRequestURI(), rejection);
+        }
+        response.setHeader(HttpHeaders.RETRY_AFTER, retryAfterSeconds);
+        response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+    }
+
+    private String clientIp(HttpServletRequest request) {
+        if (trustForwardedFor) {
+            String forwarded = request.getHeader("X-Forwarded-For");
+            if (StringUtils.isNotBlank(forwarded)) {
+                int comma = forwarded.indexOf(',');
+                return (comma < 0 ? forwarded : forwarded.substring(0, comma)).trim();
+            }
+        }
+        return request.getRemoteAddr();
+    }
+
+    private String param(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (!path.startsWith(pathPrefix)) {
+            return null;
+        }
+        String param = path.substring(pathPrefix.length());
+        return param.isEmpty() ? null : UriUtils.decode(param, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,46 @@
+package com.yue.websocket.common.interceptor;
+
+import com.yue.websocket.mapper.WebSocketMapper;
+import com.yue.websocket.service.WsTestInsertedEvent;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * @ProjectName: spring-boot-websocket
+ * @Package: com.yue.websocket.common.interceptor
+ * @ClassName: InsertEventInterceptor
+ * @Author: YUE
+ * @Description: 拦截WebSocketMapper的insert语句，插入成功后发布新增事件，统计数由事件增量维护，不再轮询count
+ * @Date: 2026/10/17 15:15
+ * @Version: 1.0
+ */
+@Component
+@Intercepts({@Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class})})
+public class InsertEventInterceptor implements Interceptor {
+
+    private static final String NAMESPACE = WebSocketMapper.class.getName() + ".";
+
+    private final ApplicationEventPublisher publisher;
+
+    public InsertEventInterceptor(ApplicationEventPublisher publisher) {
+        this.publisher = publisher;
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        Object result = invocation.proceed();
+        MappedStatement statement = (MappedStatement) invocation.getArgs()[0];
+        if (statement.getSqlCommandType() == SqlCommandType.INSERT && statement.getId().startsWith(NAMESPACE)
+                && result instanceof Integer && (Integer) result > 0) {
+            publisher.publishEvent(new WsTestInsertedEvent(statement.getId(), (Integer) result));
+        }
+        return result;
+    }
+}
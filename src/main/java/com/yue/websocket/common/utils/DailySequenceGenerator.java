@@ -0,0 +1,168 @@
+package com.yue.websocket.common.utils;
+
+import com.yue.websocket.config.WebSocketProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @ProjectName: spring-boot-websocket
+ * @Package: com.yue.websocket.common.utils
+ * @ClassName: DailySequenceGenerator
+ * @Author: YUE
+ * @Description: 每天从1开始的序列号生成器：一次Lua调用从Redis预取一段号段，本地用AtomicLong分配
+ * 每天一个key(key:yyyyMMdd)，跨天直接换key，不存在多个节点同时重置计数的竞争
+ * 同一天内全局唯一、每个节点内递增；停机时归还未用完的号段(仅当它仍是当天最后分配的一段)，否则重启会跳过这段
+ * 升级兼容：旧版本直接在key上计数(零点过期)，当天第一次创建新key时从旧key的值接着分配，避免上线当天号码重复；
+ * 新旧版本不能同时在线发号，需整体切换后再启动新版本
+ * @Date: 2026/10/17 19:20
+ * @Version: 1.0
+ */
+@Component
+public class DailySequenceGenerator {
+
+    /**
+     * 按步长递增，返回号段的最大值；当天的key第一次创建时先从旧版本的key(KEYS[2])接续，再设置过期时间
+     */
+    private static final RedisScript<Long> ALLOCATE = new DefaultRedisScript<>(
+            "local created = redis.call('EXISTS', KEYS[1]) == 0 "
+                    + "if created then "
+                    + "local legacy = tonumber(redis.call('GET', KEYS[2])) "
+                    + "if legacy then redis.call('SET', KEYS[1], legacy) end "
+                    + "end "
+                    + "local max = redis.call('INCRBY', KEYS[1], ARGV[1]) "
+                    + "if created then redis.call('EXPIRE', KEYS[1], ARGV[2]) end "
+                    + "return max", Long.class);
+
+    /**
+     * 归还号段：计数仍等于该号段的最大值(之后没有其他节点取过号段)时减去未用的数量
+     */
+    private static final RedisScript<Long> RELEASE = new DefaultRedisScript<>(
+            "if tonumber(redis.call('GET', KEYS[1])) == tonumber(ARGV[1]) then "
+                    + "return redis.call('DECRBY', KEYS[1], ARGV[2]) "
+                    + "end "
+                    + "return -1", Long.class);
+
+    private static final DateTimeFormatter DAY = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    /**
+     * 跨天的key多保留一段时间再过期，避免时钟略有偏差的节点取到新计数
+     */
+    private static final long EXPIRE_GRACE_SECONDS = 3600;
+
+    private final Logger logger = LoggerFactory.getLogger(DailySequenceGenerator.class);
+
+    private final RedisTemplate<Serializable, Object> redisTemplate;
+
+    private final int step;
+
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    private final Map<String, Segment> segments = new ConcurrentHashMap<>();
+
+    private final Map<String, Object> locks = new ConcurrentHashMap<>();
+
+    public DailySequenceGenerator(RedisTemplate<Serializable, Object> redisTemplate, WebSocketProperties properties) {
+        this.redisTemplate = redisTemplate;
+        this.step = Math.max(1, properties.getSequence().getStep());
+    }
+
+    /**
+     * 获取当天的下一个序列号
+     *
+     * @param key: 业务key，实际的Redis key为 key:yyyyMMdd
+     * @return: long 当天从1开始
+     **/
+    public long next(String key) {
+        while (true) {
+            Segment segment = segments.get(key);
+            if (segment != null && System.currentTimeMillis() < segment.dayEnd) {
+                long value = segment.next.getAndIncrement();
+                if (value <= segment.max) {
+                    return value;
+                }
+            }
+            allocate(key, segment);
+        }
+    }
+
+    /**
+     * 当前号段用完或跨天时从Redis取新号段，同一个key同时只有一个线程去取
+     */
+    private void allocate(String key, Segment exhausted) {
+        synchronized (lockOf(key)) {
+            if (segments.get(key) != exhausted) {
+                return;
+            }
+            LocalDate today = LocalDate.now(zone);
+            long dayEnd = today.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+            long ttl = (dayEnd - System.currentTimeMillis()) / 1000 + EXPIRE_GRACE_SECONDS;
+            String dayKey = key + ":" + today.format(DAY);
+            Long max = redisTemplate.execute(ALLOCATE, new StringRedisSerializer(), new GenericToStringSerializer<>(Long.class),
+                    Arrays.<Serializable>asList(dayKey, key), String.valueOf(step), String.valueOf(ttl));
+            if (max == null) {
+                throw new IllegalStateException("redis分配序列号段失败：" + key);
+            }
+            segments.put(key, new Segment(dayKey, max - step + 1, max, dayEnd));
+        }
+    }
+
+    /**
+     * 停机时归还当天未用完的号段，其他节点或重启后可以接着使用
+     */
+    @PreDestroy
+    public void release() {
+        for (Segment segment : segments.values()) {
+            // 先关闭号段，之后的next不会再从这段取号
+            long unused = segment.next.getAndSet(segment.max + 1);
+            if (unused > segment.max || System.currentTimeMillis() >= segment.dayEnd) {
+                continue;
+            }
+            try {
+                redisTemplate.execute(RELEASE, new StringRedisSerializer(), new GenericToStringSerializer<>(Long.class),
+                        Collections.<Serializable>singletonList(segment.dayKey),
+                        String.valueOf(segment.max), String.valueOf(segment.max - unused + 1));
+            } catch (Exception e) {
+                logger.warn("归还序列号段[{}]异常：{}", segment.dayKey, e.getMessage());
+            }
+        }
+    }
+
+    private Object lockOf(String key) {
+        return locks.computeIfAbsent(key, k -> new Object());
+    }
+
+    private static final class Segment {
+
+        private final String dayKey;
+
+        private final AtomicLong next;
+
+        private final long max;
+
+        private final long dayEnd;
+
+        private Segment(String dayKey, long first, long max, long dayEnd) {
+            this.dayKey = dayKey;
+            this.next = new AtomicLong(first);
+            this.max = max;
+            this.dayEnd = dayEnd;
+        }
+    }
+}
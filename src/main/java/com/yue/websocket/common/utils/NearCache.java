@@ -0,0 +1,226 @@
+package com.yue.websocket.common.utils;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.yue.websocket.config.WebSocketProperties;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * @ProjectName: spring-boot-websocket
+ * @Package: com.yue.websocket.common.utils
+ * @ClassName: NearCache
+ * @Author: YUE
+ * @Description: RedisUtils前面的本地缓存(Caffeine，W-TinyLFU淘汰)，只缓存配置了前缀的key
+ * 本节点的写操作(RedisUtils、ReactiveRedisUtils、RedisBatch)在写入Redis后失效，写入期间并发加载到的旧值不会留在缓存里；
+ * 其他节点靠keyspace通知保持一致，TTL作为通知丢失时的兜底
+ * @Date: 2026/10/17 18:30
+ * @Version: 1.0
+ */
+@Component
+public class NearCache implements MessageListener {
+
+    /**
+     * 缓存Redis中不存在的值，避免反复穿透
+     */
+    private static final Object NULL = new Object();
+
+    private final boolean enabled;
+
+    private final List<String> prefixes;
+
+    /**
+     * String类型：key -> 值
+     */
+    private final Cache<String, Object> values;
+
+    /**
+     * Hash类型：key -> (item -> 值)，key失效时整张hash一起失效；按字段数计权重，大hash不会撑破容量
+     */
+    private final Cache<String, Map<String, Object>> hashes;
+
+    /**
+     * 失效版本数，按key的hash分段
+     */
+    private static final int VERSION_STRIPES = 1024;
+
+    /**
+     * 按key分段的失效版本，加载期间同一段发生过失效则不回填，避免把旧值写回缓存；
+     * 其他key的失效不影响回填，分段冲突最多少回填一次
+     */
+    private final AtomicLongArray versions = new AtomicLongArray(VERSION_STRIPES);
+
+    /**
+     * 前缀 -> [命中数, 未命中数]
+     */
+    private final Map<String, LongAdder[]> stats = new ConcurrentHashMap<>();
+
+    public NearCache(WebSocketProperties properties) {
+        WebSocketProperties.NearCache config = properties.getNearCache();
+        this.enabled = config.isEnabled() && !config.getPrefixes().isEmpty();
+        this.prefixes = config.getPrefixes();
+        this.values = Caffeine.newBuilder()
+                .maximumSize(config.getMaximumSize())
+                .expireAfterWrite(config.getTtlSeconds(), TimeUnit.SECONDS)
+                .build();
+        this.hashes = Caffeine.newBuilder()
+                .maximumWeight(config.getMaximumSize())
+                .weigher((String key, Map<String, Object> hash) -> hash.size())
+                .expireAfterWrite(config.getTtlSeconds(), TimeUnit.SECONDS)
+                .build();
+        for (String prefix : prefixes) {
+            stats.put(prefix, new LongAdder[]{new LongAdder(), new LongAdder()});
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * key是否走本地缓存
+     */
+    public boolean accepts(String key) {
+        return enabled && key != null && prefixOf(key) != null;
+    }
+
+    /**
+     * 读取String类型的值，本地没有时调用loader从Redis加载
+     */
+    public Object get(String key, Supplier<Object> loader) {
+        Object cached = values.getIfPresent(key);
+        if (record(key, cached != null)) {
+            return unwrap(cached);
+        }
+        int stripe = stripe(key);
+        long version = versions.get(stripe);
+        Object loaded = loader.get();
+        // 版本检查和回填在同一个compute里，与invalidate的移除互斥：检查之后的失效一定会移除回填的值
+        values.asMap().compute(key, (k, current) -> version == versions.get(stripe) ? wrap(loaded) : current);
+        return loaded;
+    }
+
+    /**
+     * 读取Hash类型某个item的值，本地没有时调用loader从Redis加载
+     */
+    public Object hashGet(String key, String item, Supplier<Object> loader) {
+        Map<String, Object> hash = hashes.getIfPresent(key);
+        Object cached = hash == null ? null : hash.get(item);
+        if (record(key, cached != null)) {
+            return unwrap(cached);
+        }
+        int stripe = stripe(key);
+        long version = versions.get(stripe);
+        Object loaded = loader.get();
+        hashes.asMap().compute(key, (k, current) -> {
+            if (version != versions.get(stripe)) {
+                return current;
+            }
+            // 写时复制，放回新的map让Caffeine按字段数重新计算权重
+            Map<String, Object> copy = current == null ? new HashMap<>() : new HashMap<>(current);
+            copy.put(item, wrap(loaded));
+            return copy;
+        });
+        return loaded;
+    }
+
+    /**
+     * 本地失效，写入Redis之后调用；其他节点通过keyspace通知失效
+     */
+    public void invalidate(String key) {
+        if (!enabled || key == null) {
+            return;
+        }
+        // 先增加版本再移除，正在加载的读不会再回填
+        versions.incrementAndGet(stripe(key));
+        values.invalidate(key);
+        hashes.invalidate(key);
+    }
+
+    /**
+     * keyspace通知：频道为__keyspace@{db}__:{key}，任何事件都使本地缓存失效
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String channel = new String(message.getChannel(), StandardCharsets.UTF_8);
+        int index = channel.indexOf("__:");
+        if (index > 0) {
+            invalidate(channel.substring(index + 3));
+        }
+    }
+
+    /**
+     * 各前缀的命中统计
+     */
+    public Map<String, Map<String, Object>> stats() {
+        Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+        for (Map.Entry<String, LongAdder[]> entry : stats.entrySet()) {
+            long hits = entry.getValue()[0].sum();
+            long misses = entry.getValue()[1].sum();
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("hits", hits);
+            item.put("misses", misses);
+            item.put("hitRate", hits + misses == 0 ? 0D : (double) hits / (hits + misses));
+            result.put(entry.getKey(), item);
+        }
+        return result;
+    }
+
+    /**
+     * Hash缓存当前缓存的字段总数，先执行挂起的淘汰
+     */
+    long hashWeight() {
+        hashes.cleanUp();
+        long fields = 0;
+        for (Map<String, Object> hash : hashes.asMap().values()) {
+            fields += hash.size();
+        }
+        return fields;
+    }
+
+    public List<String> getPrefixes() {
+        return prefixes;
+    }
+
+    private boolean record(String key, boolean hit) {
+        LongAdder[] counters = stats.get(prefixOf(key));
+        if (counters != null) {
+            counters[hit ? 0 : 1].increment();
+        }
+        return hit;
+    }
+
+    private String prefixOf(String key) {
+        for (String prefix : prefixes) {
+            if (key.startsWith(prefix)) {
+                return prefix;
+            }
+        }
+        return null;
+    }
+
+    private static int stripe(String key) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & (VERSION_STRIPES - 1);
+    }
+
+    private static Object wrap(Object value) {
+        return value == null ? NULL : value;
+    }
+
+    private static Object unwrap(Object value) {
+        return value == NULL ? null : value;
+    }
+}
@@ -0,0 +1,249 @@
+package com.yue.websocket.common.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * @ProjectName: spring-boot-websocket
+ * @Package: com.yue.websocket.common.utils
+ * @ClassName: ReactiveRedisUtils
+ * @Author: YUE
+ * @Description: RedisUtils的非阻塞版本，方法名与RedisUtils保持一致，返回Mono，不占用调用线程等待网络
+ * 需要CompletableFuture时调用Mono.toFuture()；序列化方式与RedisUtils相同，两边数据互通
+ * 写操作结束后与RedisUtils一样使本地缓存(NearCache)失效
+ * @Date: 2026/10/17 17:50
+ * @Version: 1.0
+ */
+@Component
+public class ReactiveRedisUtils {
+    private final Logger logger = LoggerFactory.getLogger(ReactiveRedisUtils.class);
+
+    private final ReactiveRedisTemplate<String, Object> reactiveRedisTemplate;
+
+    private final NearCache nearCache;
+
+    public ReactiveRedisUtils(ReactiveRedisTemplate<String, Object> reactiveFastJsonRedisTemplate, NearCache nearCache) {
+        this.reactiveRedisTemplate = reactiveFastJsonRedisTemplate;
+        this.nearCache = nearCache;
+    }
+
+    /**
+     * 指定缓存失效时间
+     *
+     * @param key:
+     * @param time: 时间(秒)
+     * @return: reactor.core.publisher.Mono<java.lang.Boolean>
+     * @Author: YUE
+     * @Date: 2026/10/17 17:50
+     **/
+    public Mono<Boolean> expire(String key, long time) {
+        if (time <= 0) {
+            return Mono.just(true);
+        }
+        return reactiveRedisTemplate.expire(key, Duration.ofSeconds(time))
+                .onErrorResume(e -> failed("设置key:" + key + "缓存失效时间 异常", e, false));
+    }
+
+    /**
+     * 删除缓存
+     *
+     * @param key: 可以传一个值 或多个
+     * @return: reactor.core.publisher.Mono<java.lang.Long> 删除的个数
+     * @Author: YUE
+     * @Date: 2026/10/17 17:50
+     **/
+    public Mono<Long> del(String... key) {
+        if (key == null || key.length == 0) {
+            return Mono.just(0L);
+        }
+        return reactiveRedisTemplate.delete(key)
+                .doFinally(signal -> {
+                    for (String k : key) {
+                        nearCache.invalidate(k);
+                    }
+                })
+                .onErrorResume(e -> failed("删除缓存key 异常", e, 0L));
+    }
+
+    /**
+     * 普通缓存获取
+     *
+     * @param key:
+     * @return: reactor.core.publisher.Mono<java.lang.Object> key不存在时为空
+     * @Author: YUE
+     * @Date: 2026/10/17 17:50
+     **/
+    public Mono<Object> get(String key) {
+        if (key == null) {
+            return Mono.empty();
+        }
+        return reactiveRedisTemplate.opsForValue().get(key)
+                .onErrorResume(e -> failed("获取key:" + key + "的值 异常", e, null));
+    }
+
+    /**
+     * 放入key的值
+     *
+     * @param key:
+     * @param value:
+     * @return: reactor.core.publisher.Mono<java.lang.Boolean>
+     * @Author: YUE
+     * @Date: 2026/10/17 17:50
+     **/
+    public Mono<Boolean> set(String key, Object value) {
+        return reactiveRedisTemplate.opsForValue().set(key, value)
+                .doFinally(signal -> nearCache.invalidate(key))
+                .onErrorResume(e -> failed("设置key:" + key + "的值 异常", e, false));
+    }
+
+    /**
+     * 存入key的值并设置过期时间(SET EX)
+     *
+     * @param key:
+     * @param value:
+     * @param time:  时间(秒) time要大于0 如果time小于等于0 将设置无限期
+     * @return: reactor.core.publisher.Mono<java.lang.Boolean>
+     * @Author: YUE
+     * @Date: 2026/10/17 17:50
+     **/
+    public Mono<Boolean> set(String key, Object value, long time) {
+        if (time <= 0) {
+            return set(key, value);
+        }
+        return reactiveRedisTemplate.opsForValue().set(key, value, Duration.ofSeconds(time))
+                .doFinally(signal -> nearCache.invalidate(key))
+                .onErrorResume(e -> failed("设置key:" + key + "的值及过期时间 异常", e, false));
+    }
+
+    /**
+     * 递增
+     *
+     * @param key:
+     * @param delta: 要增加几(大于0)
+     * @return: reactor.core.publisher.Mono<java.lang.Long> 与RedisUtils.incr一致，异常时以错误结束
+     * @Author: YUE
+     * @Date: 2026/10/17 17:50
+     **/
+    public Mono<Long> incr(String key, long delta) {
+        if (delta < 0) {
+            return Mono.error(new RuntimeException("递增因子必须大于0"));
+        }
+        return reactiveRedisTemplate.opsForValue().increment(key, delta)
+                .doFinally(signal -> nearCache.invalidate(key))
+                .doOnError(e -> logger.error("redis中key:{}的值增加{} 异常", key, delta, e));
+    }
+
+    /**
+     * 获取HashGet
+     *
+     * @param key:
+     * @param item:
+     * @return: reactor.core.publisher.Mono<java.lang.Object>
+     * @Author: YUE
+     * @Date: 2026/10/17 17:50
+     **/
+    public Mono<Object> hashGet(String key, String item) {
+        return reactiveRedisTemplate.opsForHash().get(key, item)
+                .onErrorResume(e -> failed("获取key:" + key + "的Hash类型的数据 异常", e, null));
+    }
+
+    /**
+     * 获取hashKey对应的所有键值
+     *
+     * @param key:
+     * @return: reactor.core.publisher.Mono<java.util.Map<java.lang.Object, java.lang.Object>>
+     * @Author: YUE
+     * @Date: 2026/10/17 17:50
+     **/
+    public Mono<Map<Object, Object>> hashGet(String key) {
+        return reactiveRedisTemplate.opsForHash().entries(key)
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue)
+                .onErrorResume(e -> failed("获取key:" + key + "的Hash类型所有key的值 异常", e, null));
+    }
+
+    /**
+     * 设置Hash类型的值
+     *
+     * @param key:
+     * @param map:
+     * @return: reactor.core.publisher.Mono<java.lang.Boolean>
+     * @Author: YUE
+     * @Date: 2026/10/17 17:50
+     **/
+    public Mono<Boolean> hashSet(String key, Map<String, Object> map) {
+        return reactiveRedisTemplate.<String, Object>opsForHash().putAll(key, map)
+                .doFinally(signal -> nearCache.invalidate(key))
+                .onErrorResume(e -> failed("设key:" + key + "的Hash类型值 异常", e, false));
+    }
+
+    /**
+     * 向一张hash表中放入数据,如果不存在将创建
+     *
+     * @param key:
+     * @param item:
+     * @param value:
+     * @return: reactor.core.publisher.Mono<java.lang.Boolean>
+     * @Author: YUE
+     * @Date: 2026/10/17 17:50
+     **/
+    public Mono<Boolean> hashSet(String key, String item, Object value) {
+        return reactiveRedisTemplate.<String, Object>opsForHash().put(key, item, value)
+                .doFinally(signal -> nearCache.invalidate(key))
+                .map(added -> true)
+                .onErrorResume(e -> failed("设置key:" + key + "的Hash类型值 异常", e, false));
+    }
+
+    /**
+     * 向一张hash表中放入数据并设置过期时间
+     *
+     * @param key:
+     * @param item:
+     * @param value:
+     * @param time:  时间(秒) 注意:如果已存在的hash表有时间,这里将会替换原有的时间
+     * @return: reactor.core.publisher.Mono<java.lang.Boolean>
+     * @Author: YUE
+     * @Date: 2026/10/17 17:50
+     **/
+    public Mono<Boolean> hashSet(String key, String item, Object value, long time) {
+        return hashSet(key, item, value).flatMap(ok -> ok ? expire(key, time) : Mono.just(false));
+    }
+
+    /**
+     * HyperLogLog类型添加数据
+     *
+     * @param key:
+     * @param value:
+     * @return: reactor.core.publisher.Mono<java.lang.Boolean> 已存在时为false
+     * @Author: YUE
+     * @Date: 2026/10/17 17:50
+     **/
+    public Mono<Boolean> pfAdd(String key, Object value) {
+        return reactiveRedisTemplate.opsForHyperLogLog().add(key, value)
+                .map(added -> added != 0)
+                .onErrorResume(e -> failed("设置key:" + key + "的HyperLogLog类型的值 异常", e, false));
+    }
+
+    /**
+     * HyperLogLog类型统计数据
+     *
+     * @param key:
+     * @return: reactor.core.publisher.Mono<java.lang.Long>
+     * @Author: YUE
+     * @Date: 2026/10/17 17:50
+     **/
+    public Mono<Long> pfCount(String key) {
+        return reactiveRedisTemplate.opsForHyperLogLog().size(key)
+                .onErrorResume(e -> failed("统计key:" + key + "的HyperLogLog类型的值 异常", e, 0L));
+    }
+
+    private <T> Mono<T> failed(String message, Throwable e, T fallback) {
+        logger.error(message, e);
+        return fallback == null ? Mono.empty() : Mono.just(fallback);
+    }
+}
@@ -0,0 +1,298 @@
+package com.yue.websocket.common.utils;
+
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * @ProjectName: spring-boot-websocket
+ * @Package: com.yue.websocket.common.utils
+ * @ClassName: RedisBatch
+ * @Author: YUE
+ * @Description: Redis批量操作：先排队，execute时每个db一次pipeline发出，结果按排队顺序返回
+ * 带过期时间的写操作合并成一条原子命令：String用SET EX，Hash/List/Set用Lua脚本写入并设置过期
+ * 脚本以EVALSHA调用，只发送SHA1；含脚本操作的db在打开pipeline前先确认脚本已加载，不在pipeline之后补发，保证写入顺序
+ * 执行后写过的key在本地缓存(NearCache)中失效
+ * 用法：redisUtils.batch().hashSet(k1, map, 60).db(2).set(k2, v, 60).execute()
+ * @Date: 2026/10/17 17:10
+ * @Version: 1.0
+ */
+public class RedisBatch {
+
+    /**
+     * 写入并设置过期：ARGV[1]为写命令(HSET/RPUSH/SADD)，ARGV[2]为过期时间(秒)，其余为命令参数
+     */
+    static final DefaultRedisScript<Long> WRITE_AND_EXPIRE = new DefaultRedisScript<>(
+            "local n = redis.call(ARGV[1], KEYS[1], unpack(ARGV, 3)) "
+                    + "if tonumber(ARGV[2]) > 0 then redis.call('EXPIRE', KEYS[1], ARGV[2]) end "
+                    + "return n", Long.class);
+
+    private static final byte[] WRITE_AND_EXPIRE_BODY = WRITE_AND_EXPIRE.getScriptAsString().getBytes(StandardCharsets.UTF_8);
+
+    static final byte[] HSET = "HSET".getBytes(StandardCharsets.UTF_8);
+
+    static final byte[] RPUSH = "RPUSH".getBytes(StandardCharsets.UTF_8);
+
+    static final byte[] SADD = "SADD".getBytes(StandardCharsets.UTF_8);
+
+    private final RedisUtils redisUtils;
+
+    /**
+     * db -> 该db下的操作，-1表示默认db
+     */
+    private final Map<Integer, List<Op>> groups = new LinkedHashMap<>();
+
+    private int size;
+
+    private int db = -1;
+
+    RedisBatch(RedisUtils redisUtils) {
+        this.redisUtils = redisUtils;
+    }
+
+    /**
+     * 之后排队的操作使用指定db
+     */
+    public RedisBatch db(int db) {
+        this.db = db;
+        return this;
+    }
+
+    public RedisBatch get(String key) {
+        return add(null, false, (conn, t) -> conn.get(rawKey(t, key)));
+    }
+
+    /**
+     * 放入值，time大于0时使用SET EX
+     */
+    public RedisBatch set(String key, Object value, long time) {
+        return add(key, false, (conn, t) -> conn.set(rawKey(t, key), rawValue(t, value),
+                time > 0 ? Expiration.seconds(time) : Expiration.persistent(), RedisStringCommands.SetOption.upsert()));
+    }
+
+    public RedisBatch incr(String key, long delta) {
+        return add(key, false, (conn, t) -> conn.incrBy(rawKey(t, key), delta));
+    }
+
+    public RedisBatch expire(String key, long time) {
+        return add(null, false, (conn, t) -> conn.expire(rawKey(t, key), time));
+    }
+
+    public RedisBatch del(String key) {
+        return add(key, false, (conn, t) -> conn.del(rawKey(t, key)));
+    }
+
+    public RedisBatch hashGet(String key, String item) {
+        return add(null, false, (conn, t) -> conn.hGet(rawKey(t, key), rawHashKey(t, item)));
+    }
+
+    public RedisBatch hashDel(String key, String item) {
+        return add(key, false, (conn, t) -> conn.hDel(rawKey(t, key), rawHashKey(t, item)));
+    }
+
+    public RedisBatch hashSet(String key, String item, Object value, long time) {
+        return add(key, true, (conn, t) -> writeAndExpire(conn, HSET, rawKey(t, key), time, rawHashKey(t, item), rawHashValue(t, value)));
+    }
+
+    public RedisBatch hashSet(String key, Map<String, Object> map, long time) {
+        return add(key, true, (conn, t) -> writeAndExpire(conn, HSET, rawKey(t, key), time, rawHash(t, map)));
+    }
+
+    public RedisBatch sSet(String key, long time, Object... values) {
+        return add(key, true, (conn, t) -> writeAndExpire(conn, SADD, rawKey(t, key), time, rawValues(t, Arrays.asList(values))));
+    }
+
+    public RedisBatch lSet(String key, Object value, long time) {
+        return add(key, true, (conn, t) -> writeAndExpire(conn, RPUSH, rawKey(t, key), time, rawValue(t, value)));
+    }
+
+    public RedisBatch lSet(String key, List<Object> values, long time) {
+        return add(key, true, (conn, t) -> writeAndExpire(conn, RPUSH, rawKey(t, key), time, rawValues(t, values)));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 执行所有排队的操作
+     *
+     * @return: 每个操作的结果，顺序与排队顺序一致
+     */
+    public List<Object> execute() {
+        Object[] results = new Object[size];
+        Set<String> written = new LinkedHashSet<>();
+        try {
+            for (Map.Entry<Integer, List<Op>> group : groups.entrySet()) {
+                RedisTemplate<Serializable, Object> template = group.getKey() < 0
+                        ? redisUtils.getRedisTemplate() : redisUtils.getRedisTemplateByDb(group.getKey());
+                List<Op> ops = group.getValue();
+                boolean scripted = false;
+                for (Op op : ops) {
+                    scripted |= op.scripted;
+                    if (op.key != null) {
+                        written.add(op.key);
+                    }
+                }
+                if (scripted) {
+                    template.execute((RedisCallback<Object>) RedisBatch::loadScript);
+                }
+                List<Object> values = template.executePipelined((RedisCallback<Object>) conn -> {
+                    for (Op op : ops) {
+                        op.command.apply(conn, template);
+                    }
+                    return null;
+                }, template.getValueSerializer());
+                for (int i = 0; i < ops.size(); i++) {
+                    results[ops.get(i).index] = values.get(i);
+                }
+            }
+        } finally {
+            for (String key : written) {
+                redisUtils.invalidateNearCache(key);
+            }
+            groups.clear();
+            size = 0;
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Redis中没有脚本(重启或SCRIPT FLUSH后)时加载，之后pipeline中的EVALSHA按排队顺序执行
+     */
+    private static Object loadScript(RedisConnection conn) {
+        List<Boolean> exists = conn.scriptingCommands().scriptExists(WRITE_AND_EXPIRE.getSha1());
+        if (exists == null || exists.isEmpty() || !Boolean.TRUE.equals(exists.get(0))) {
+            conn.scriptingCommands().scriptLoad(WRITE_AND_EXPIRE_BODY);
+        }
+        return null;
+    }
+
+    /**
+     * 写入并设置过期，一条EVALSHA原子完成；在pipeline中返回null，结果由pipeline统一返回
+     */
+    static Object writeAndExpire(RedisConnection conn, byte[] command, byte[] key, long time, byte[]... args) {
+        return conn.scriptingCommands().evalSha(WRITE_AND_EXPIRE.getSha1(), ReturnType.INTEGER, 1,
+                keysAndArgs(command, key, time, args));
+    }
+
+    /**
+     * 非pipeline的写入并设置过期：EVALSHA遇到NOSCRIPT时改用EVAL，EVAL同时把脚本缓存到Redis
+     */
+    static Object writeAndExpireOrLoad(RedisConnection conn, byte[] command, byte[] key, long time, byte[]... args) {
+        try {
+            return writeAndExpire(conn, command, key, time, args);
+        } catch (RuntimeException e) {
+            if (!isNoScript(e)) {
+                throw e;
+            }
+            return conn.scriptingCommands().eval(WRITE_AND_EXPIRE_BODY, ReturnType.INTEGER, 1,
+                    keysAndArgs(command, key, time, args));
+        }
+    }
+
+    private static byte[][] keysAndArgs(byte[] command, byte[] key, long time, byte[]... args) {
+        byte[][] keysAndArgs = new byte[args.length + 3][];
+        keysAndArgs[0] = key;
+        keysAndArgs[1] = command;
+        keysAndArgs[2] = String.valueOf(time).getBytes(StandardCharsets.UTF_8);
+        System.arraycopy(args, 0, keysAndArgs, 3, args.length);
+        return keysAndArgs;
+    }
+
+    static boolean isNoScript(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t.getMessage() != null && t.getMessage().contains("NOSCRIPT")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    static byte[] rawKey(RedisTemplate<?, ?> template, String key) {
+        return ((RedisSerializer<Object>) template.getKeySerializer()).serialize(key);
+    }
+
+    @SuppressWarnings("unchecked")
+    static byte[] rawValue(RedisTemplate<?, ?> template, Object value) {
+        return ((RedisSerializer<Object>) template.getValueSerializer()).serialize(value);
+    }
+
+    @SuppressWarnings("unchecked")
+    static byte[] rawHashKey(RedisTemplate<?, ?> template, String item) {
+        return ((RedisSerializer<Object>) template.getHashKeySerializer()).serialize(item);
+    }
+
+    @SuppressWarnings("unchecked")
+    static byte[] rawHashValue(RedisTemplate<?, ?> template, Object value) {
+        return ((RedisSerializer<Object>) template.getHashValueSerializer()).serialize(value);
+    }
+
+    static byte[][] rawHash(RedisTemplate<?, ?> template, Map<String, Object> map) {
+        byte[][] args = new byte[map.size() * 2][];
+        int i = 0;
+        for (Map.Entry<String, Object> entry : map.entrySet()) {
+            args[i++] = rawHashKey(template, entry.getKey());
+            args[i++] = rawHashValue(template, entry.getValue());
+        }
+        return args;
+    }
+
+    static byte[][] rawValues(RedisTemplate<?, ?> template, List<Object> values) {
+        byte[][] args = new byte[values.size()][];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = rawValue(template, values.get(i));
+        }
+        return args;
+    }
+
+    /**
+     * @param key:      写操作的key，执行后在本地缓存中失效，读操作为null
+     * @param scripted: 是否以EVALSHA执行
+     */
+    private RedisBatch add(String key, boolean scripted, Command command) {
+        groups.computeIfAbsent(db, k -> new ArrayList<>()).add(new Op(size++, key, scripted, command));
+        return this;
+    }
+
+    /**
+     * 每个操作只发出一条命令，保证pipeline结果与操作一一对应；pipeline中返回null，单独执行时返回结果
+     */
+    private interface Command {
+        Object apply(RedisConnection conn, RedisTemplate<?, ?> template);
+    }
+
+    private static final class Op {
+
+        private final int index;
+
+        private final String key;
+
+        private final boolean scripted;
+
+        private final Command command;
+
+        private Op(int index, String key, boolean scripted, Command command) {
+            this.index = index;
+            this.key = key;
+            this.scripted = scripted;
+            this.command = command;
+        }
+    }
+}
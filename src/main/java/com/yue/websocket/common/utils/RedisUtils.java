@@ -4,13 +4,14 @@ import com.yue.websocket.config.RedisConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Component;
 import org.springframework.util.CollectionUtils;
 
 import javax.annotation.Resource;
 import java.io.Serializable;
-import java.util.Calendar;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -20,12 +21,23 @@ import java.util.concurrent.TimeUnit;
 public class RedisUtils {
     private final Logger logger = LoggerFactory.getLogger(RedisUtils.class);
 
+    /**
+     * incrNumStartOneEveryDay格式化为5位，当天最大的序列号
+     */
+    private static final long DAILY_SEQUENCE_MAX = 99999;
+
     @Resource
     private RedisConfig redisConfig;
 
     @Autowired
     private RedisTemplate redisTemplate;
 
+    @Resource
+    private NearCache nearCache;
+
+    @Resource
+    private DailySequenceGenerator dailySequenceGenerator;
+
     /**
      * 根据db获取对应的redisTemplate实例
      *
@@ -38,6 +50,53 @@ public class RedisUtils {
         return redisConfig.setDataBase(db);
     }
 
+    /**
+     * 获取默认db的redisTemplate实例
+     *
+     * @return: org.springframework.data.redis.core.RedisTemplate<java.io.Serializable, java.lang.Object>
+     * @Author: YUE
+     * @Date: 2026/10/17 17:20
+     **/
+    public RedisTemplate<Serializable, Object> getRedisTemplate() {
+        return redisTemplate;
+    }
+
+    /**
+     * 创建批量操作，排队的操作在execute时每个db一次pipeline发出
+     *
+     * @return: com.yue.websocket.common.utils.RedisBatch
+     * @Author: YUE
+     * @Date: 2026/10/17 17:20
+     **/
+    public RedisBatch batch() {
+        return new RedisBatch(this);
+    }
+
+    /**
+     * 本地缓存失效，RedisBatch写入后调用
+     */
+    void invalidateNearCache(String key) {
+        nearCache.invalidate(key);
+    }
+
+    /**
+     * 写入Hash/List/Set并设置过期时间，一条Lua脚本原子完成，只有一次网络往返；以EVALSHA调用，只发送脚本SHA1
+     *
+     * @param template: 对应db的redisTemplate
+     * @param command:  写命令 HSET/RPUSH/SADD
+     * @param key:
+     * @param time:     时间(秒) 小于等于0时不设置过期
+     * @param args:     已序列化的命令参数
+     * @return: long 写命令的返回值
+     * @Author: YUE
+     * @Date: 2026/10/17 17:20
+     **/
+    private long writeAndExpire(RedisTemplate<?, ?> template, byte[] command, String key, long time, byte[]... args) {
+        Long result = (Long) template.execute((RedisCallback<Object>) conn ->
+                RedisBatch.writeAndExpireOrLoad(conn, command, RedisBatch.rawKey(template, key), time, args));
+        return result == null ? 0 : result;
+    }
+
     /**
      * 指定缓存失效时间
      *
@@ -111,6 +170,12 @@ public class RedisUtils {
         } catch (Exception e) {
             logger.error("删除缓存key:{} 异常", key);
             e.printStackTrace();
+        } finally {
+            if (key != null) {
+                for (String k : key) {
+                    nearCache.invalidate(k);
+                }
+            }
         }
     }
 // ============================String=============================
@@ -125,6 +190,9 @@ public class RedisUtils {
      **/
     public Object get(String key) {
         try {
+            if (nearCache.accepts(key)) {
+                return nearCache.get(key, () -> redisTemplate.opsForValue().get(key));
+            }
             return key == null ? null : redisTemplate.opsForValue().get(key);
         } catch (Exception e) {
             logger.error("获取key:{}的值 异常", key);
@@ -161,6 +229,29 @@ public class RedisUtils {
         } catch (Exception e) {
             logger.error("设置key:{}的值 异常", key);
             e.printStackTrace();
+        } finally {
+            nearCache.invalidate(key);
+        }
+        return false;
+    }
+
+    /**
+     * key不存在时放入值
+     *
+     * @param key:
+     * @param value:
+     * @return: boolean 是否放入成功，key已存在时返回false
+     * @Author: YUE
+     * @Date: 2026/10/17 15:30
+     **/
+    public boolean setIfAbsent(String key, Object value) {
+        try {
+            return Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(key, value));
+        } catch (Exception e) {
+            logger.error("key:{}不存在时设置值 异常", key);
+            e.printStackTrace();
+        } finally {
+            nearCache.invalidate(key);
         }
         return false;
     }
@@ -186,6 +277,8 @@ public class RedisUtils {
         } catch (Exception e) {
             logger.error("设置将key:{}的值过期时间time:{} 异常", key, time);
             e.printStackTrace();
+        } finally {
+            nearCache.invalidate(key);
         }
         return false;
     }
@@ -209,6 +302,8 @@ public class RedisUtils {
             logger.error("redis中key:{}的值增加{} 异常", key, delta);
             e.printStackTrace();
             throw new RuntimeException("redis递增" + key + "的值异常");
+        } finally {
+            nearCache.invalidate(key);
         }
     }
 
@@ -231,6 +326,8 @@ public class RedisUtils {
             logger.error("redis中key:{}的值减少{} 异常", key, delta);
             e.printStackTrace();
             throw new RuntimeException("redis减少" + key + "的值异常");
+        } finally {
+            nearCache.invalidate(key);
         }
     }
 
@@ -247,6 +344,9 @@ public class RedisUtils {
      **/
     public Object hashGet(String key, String item) {
         try {
+            if (nearCache.accepts(key)) {
+                return nearCache.hashGet(key, item, () -> redisTemplate.opsForHash().get(key, item));
+            }
             return redisTemplate.opsForHash().get(key, item);
         } catch (Exception e) {
             logger.error("获取key:{}的Hash类型的数据key:{}的值 异常", key, item);
@@ -289,6 +389,8 @@ public class RedisUtils {
         } catch (Exception e) {
             logger.error("设key:{}的Hash类型值 异常", key);
             e.printStackTrace();
+        } finally {
+            nearCache.invalidate(key);
         }
         return false;
     }
@@ -305,14 +407,15 @@ public class RedisUtils {
      **/
     public boolean hashSet(String key, Map<String, Object> map, long time) {
         try {
-            redisTemplate.opsForHash().putAll(key, map);
-            if (time > 0) {
-                expire(key, time);
+            if (!map.isEmpty()) {
+                writeAndExpire(redisTemplate, RedisBatch.HSET, key, time, RedisBatch.rawHash(redisTemplate, map));
             }
             return true;
         } catch (Exception e) {
             logger.error("设置key:{}的Hash类型值,过期时间time:{} 异常", key, time);
             e.printStackTrace();
+        } finally {
+            nearCache.invalidate(key);
         }
         return false;
     }
@@ -334,6 +437,8 @@ public class RedisUtils {
         } catch (Exception e) {
             logger.error("设置key:{}的Hash类型值键key:{}的值 异常", key, item);
             e.printStackTrace();
+        } finally {
+            nearCache.invalidate(key);
         }
         return false;
     }
@@ -351,14 +456,14 @@ public class RedisUtils {
      **/
     public boolean hashSet(String key, String item, Object value, long time) {
         try {
-            redisTemplate.opsForHash().put(key, item, value);
-            if (time > 0) {
-                expire(key, time);
-            }
+            writeAndExpire(redisTemplate, RedisBatch.HSET, key, time,
+                    RedisBatch.rawHashKey(redisTemplate, item), RedisBatch.rawHashValue(redisTemplate, value));
             return true;
         } catch (Exception e) {
             logger.error("设置key:{}的Hash类型值键key:{}的值及过期时间 异常", key, item);
             e.printStackTrace();
+        } finally {
+            nearCache.invalidate(key);
         }
         return false;
     }
@@ -378,6 +483,8 @@ public class RedisUtils {
         } catch (Exception e) {
             logger.error("删除key:{}的Hash类型值键key:{}的值 异常", key, item);
             e.printStackTrace();
+        } finally {
+            nearCache.invalidate(key);
         }
     }
 
@@ -417,6 +524,8 @@ public class RedisUtils {
             logger.error("将redis中key:{}的Hash类型的键key:{}的值新增异常", key, item);
             e.printStackTrace();
             throw new RuntimeException("redis新增Hash中" + key + "的值异常");
+        } finally {
+            nearCache.invalidate(key);
         }
     }
 
@@ -437,6 +546,8 @@ public class RedisUtils {
             logger.error("将redis中key:{}的Hash类型的键key:{}的值减少异常", key, item);
             e.printStackTrace();
             throw new RuntimeException("redis减少Hash中" + key + "的值异常");
+        } finally {
+            nearCache.invalidate(key);
         }
     }
 
@@ -510,11 +621,8 @@ public class RedisUtils {
      **/
     public long sSetAndTime(String key, long time, Object... values) {
         try {
-            Long count = redisTemplate.opsForSet().add(key, values);
-            if (time > 0) {
-                expire(key, time);
-            }
-            return count;
+            return writeAndExpire(redisTemplate, RedisBatch.SADD, key, time,
+                    RedisBatch.rawValues(redisTemplate, Arrays.asList(values)));
         } catch (Exception e) {
             logger.error("设置key:{}的Set类型的值 异常", key);
             e.printStackTrace();
@@ -650,10 +758,7 @@ public class RedisUtils {
      **/
     public boolean lSet(String key, Object value, long time) {
         try {
-            redisTemplate.opsForList().rightPush(key, value);
-            if (time > 0) {
-                expire(key, time);
-            }
+            writeAndExpire(redisTemplate, RedisBatch.RPUSH, key, time, RedisBatch.rawValue(redisTemplate, value));
             return true;
         } catch (Exception e) {
             logger.error("将key:{}的List类型放入redis中 异常", key);
@@ -694,9 +799,8 @@ public class RedisUtils {
      **/
     public boolean lSet(String key, List<Object> value, long time) {
         try {
-            redisTemplate.opsForList().rightPushAll(key, value);
-            if (time > 0) {
-                expire(key, time);
+            if (!value.isEmpty()) {
+                writeAndExpire(redisTemplate, RedisBatch.RPUSH, key, time, RedisBatch.rawValues(redisTemplate, value));
             }
             return true;
         } catch (Exception e) {
@@ -872,6 +976,12 @@ public class RedisUtils {
         } catch (Exception e) {
             logger.error("删除缓存db:{}中key:{} 异常", db, key);
             e.printStackTrace();
+        } finally {
+            if (key != null) {
+                for (String k : key) {
+                    nearCache.invalidate(k);
+                }
+            }
         }
     }
 // ============================String=============================
@@ -927,6 +1037,8 @@ public class RedisUtils {
         } catch (Exception e) {
             logger.error("将key:{}的值存在db:{} 异常", key, db);
             e.printStackTrace();
+        } finally {
+            nearCache.invalidate(key);
         }
         return false;
     }
@@ -952,6 +1064,8 @@ public class RedisUtils {
         } catch (Exception e) {
             logger.error("存入key:{}的值并设置过期时间time:{} 异常", key, time);
             e.printStackTrace();
+        } finally {
+            nearCache.invalidate(key);
         }
         return false;
     }
@@ -979,6 +1093,8 @@ public class RedisUtils {
         } catch (Exception e) {
             logger.error("将key:{}的值存在db:{}设置过期时间time异常", key, db);
             e.printStackTrace();
+        } finally {
+            nearCache.invalidate(key);
         }
         return false;
     }
@@ -1004,6 +1120,8 @@ public class RedisUtils {
             logger.error("将db:{}中key:{}的值增加异常", db, key);
             e.printStackTrace();
             throw new RuntimeException("redis递增" + key + "的值异常");
+        } finally {
+            nearCache.invalidate(key);
         }
     }
 
@@ -1028,6 +1146,8 @@ public class RedisUtils {
             logger.error("将db:{}中key:{}的值减少异常", db, key);
             e.printStackTrace();
             throw new RuntimeException("redis减少" + key + "的值异常");
+        } finally {
+            nearCache.invalidate(key);
         }
     }
 
@@ -1092,6 +1212,8 @@ public class RedisUtils {
         } catch (Exception e) {
             logger.error("设置db:{}中key:{}的Hash类型值 异常", db, key);
             e.printStackTrace();
+        } finally {
+            nearCache.invalidate(key);
         }
         return false;
     }
@@ -1109,14 +1231,15 @@ public class RedisUtils {
     public boolean hashSet(String key, Map<String, Object> map, long time, int db) {
         try {
             RedisTemplate<Serializable, Object> redisTemplate = getRedisTemplateByDb(db);
-            redisTemplate.opsForHash().putAll(key, map);
-            if (time > 0) {
-                expire(key, time, db);
+            if (!map.isEmpty()) {
+                writeAndExpire(redisTemplate, RedisBatch.HSET, key, time, RedisBatch.rawHash(redisTemplate, map));
             }
             return true;
         } catch (Exception e) {
             logger.error("设置db:{}中key:{}的Hash类型值,过期时间异常", db, key);
             e.printStackTrace();
+        } finally {
+            nearCache.invalidate(key);
         }
         return false;
     }
@@ -1140,6 +1263,8 @@ public class RedisUtils {
         } catch (Exception e) {
             logger.error("设置db:{}中key:{}的Hash类型值键的值 异常", db, key);
             e.printStackTrace();
+        } finally {
+            nearCache.invalidate(key);
         }
         return false;
     }
@@ -1159,14 +1284,14 @@ public class RedisUtils {
     public boolean hashSet(String key, String item, Object value, long time, int db) {
         try {
             RedisTemplate<Serializable, Object> redisTemplate = getRedisTemplateByDb(db);
-            redisTemplate.opsForHash().put(key, item, value);
-            if (time > 0) {
-                expire(key, time, db);
-            }
+            writeAndExpire(redisTemplate, RedisBatch.HSET, key, time,
+                    RedisBatch.rawHashKey(redisTemplate, item), RedisBatch.rawHashValue(redisTemplate, value));
             return true;
         } catch (Exception e) {
             logger.error("设置db:{}中key:{}的Hash类型的值及过期时间 异常", db, key);
             e.printStackTrace();
+        } finally {
+            nearCache.invalidate(key);
         }
         return false;
     }
@@ -1188,6 +1313,8 @@ public class RedisUtils {
         } catch (Exception e) {
             logger.error("删除db:{}中key:{}的Hash类型的值 异常", db, key);
             e.printStackTrace();
+        } finally {
+            nearCache.invalidate(key);
         }
     }
 
@@ -1231,6 +1358,8 @@ public class RedisUtils {
             logger.error("将db:{}中key:{}的Hash类型的键的值新增异常", db, key);
             e.printStackTrace();
             throw new RuntimeException("redis新增Hash中" + key + "的值异常");
+        } finally {
+            nearCache.invalidate(key);
         }
     }
 
@@ -1253,6 +1382,8 @@ public class RedisUtils {
             logger.error("将db:{}中key:{}的Hash类型的键的值减少异常", db, key);
             e.printStackTrace();
             throw new RuntimeException("redis减少Hash中" + key + "的值异常");
+        } finally {
+            nearCache.invalidate(key);
         }
     }
 
@@ -1334,11 +1465,8 @@ public class RedisUtils {
     public long sSetAndTime(int db, String key, long time, Object... values) {
         try {
             RedisTemplate<Serializable, Object> redisTemplate = getRedisTemplateByDb(db);
-            Long count = redisTemplate.opsForSet().add(key, values);
-            if (time > 0) {
-                expire(key, time, db);
-            }
-            return count;
+            return writeAndExpire(redisTemplate, RedisBatch.SADD, key, time,
+                    RedisBatch.rawValues(redisTemplate, Arrays.asList(values)));
         } catch (Exception e) {
             logger.error("将key:{}的Set类型的数据存入db:{} 异常", key, db);
             e.printStackTrace();
@@ -1487,10 +1615,7 @@ public class RedisUtils {
     public boolean lSet(String key, Object value, long time, int db) {
         try {
             RedisTemplate<Serializable, Object> redisTemplate = getRedisTemplateByDb(db);
-            redisTemplate.opsForList().rightPush(key, value);
-            if (time > 0) {
-                expire(key, time, db);
-            }
+            writeAndExpire(redisTemplate, RedisBatch.RPUSH, key, time, RedisBatch.rawValue(redisTemplate, value));
             return true;
         } catch (Exception e) {
             logger.error("将key:{}的List类型放入db:{}中 异常", key, db);
@@ -1535,9 +1660,8 @@ public class RedisUtils {
     public boolean lSet(String key, List<Object> value, long time, int db) {
         try {
             RedisTemplate<Serializable, Object> redisTemplate = getRedisTemplateByDb(db);
-            redisTemplate.opsForList().rightPushAll(key, value);
-            if (time > 0) {
-                expire(key, time, db);
+            if (!value.isEmpty()) {
+                writeAndExpire(redisTemplate, RedisBatch.RPUSH, key, time, RedisBatch.rawValues(redisTemplate, value));
             }
             return true;
         } catch (Exception e) {
@@ -1640,6 +1764,8 @@ public class RedisUtils {
 
     /**
      * 每天从1开始递增
+     * 由DailySequenceGenerator按号段分配，一次Lua调用取一段，跨天换key，不再有零点重置的竞争
+     * 号段会跳号，不再取模回绕；超过5位时抛出异常，不返回当天重复的号码
      *
      * @param key:
      * @return: java.lang.String
@@ -1647,15 +1773,10 @@ public class RedisUtils {
      * @Date: 2020/10/14 19:37
      **/
     public String incrNumStartOneEveryDay(String key) {
-        String num = "1";
-        if (!isKeyExist(key)) {
-            set(key, 0);
-            Calendar cal = Calendar.getInstance();
-            expire(key, (86400 - cal.get(Calendar.SECOND)
-                    - cal.get(Calendar.MINUTE) * 60
-                    - cal.get(Calendar.HOUR_OF_DAY) * 60 * 60));
-        }
-        num = String.format("%05d", incr(key, 1) % 10000);
-        return num;
-    }
-}
\ No newline at end of file
+        long num = dailySequenceGenerator.next(key);
+        if (num > DAILY_SEQUENCE_MAX) {
+            throw new IllegalStateException("当天序列号已用完：" + key);
+        }
+        return String.format("%05d", num);
+    }
+}
@@ -0,0 +1,98 @@
+package com.yue.websocket.common.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @ProjectName: spring-boot-websocket
+ * @Package: com.yue.websocket.common.utils
+ * @ClassName: ThreadUtils
+ * @Author: YUE
+ * @Description: 线程工厂工具，支持平台线程和虚拟线程(JDK 21+)
+ * @Date: 2026/10/17 10:20
+ * @Version: 1.0
+ */
+public final class ThreadUtils {
+
+    private static final Logger logger = LoggerFactory.getLogger(ThreadUtils.class);
+
+    private ThreadUtils() {
+    }
+
+    /**
+     * 当前JDK是否支持虚拟线程
+     *
+     * @return: boolean
+     **/
+    public static boolean isVirtualThreadSupported() {
+        try {
+            Thread.class.getMethod("ofVirtual");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 创建线程工厂
+     *
+     * @param prefix:  线程名前缀
+     * @param virtual: 是否使用虚拟线程，JDK不支持时退回平台线程
+     * @return: java.util.concurrent.ThreadFactory
+     **/
+    public static ThreadFactory newThreadFactory(String prefix, boolean virtual) {
+        if (virtual) {
+            ThreadFactory factory = virtualThreadFactory(prefix);
+            if (factory != null) {
+                return factory;
+            }
+            logger.warn("当前JDK不支持虚拟线程，{}使用平台线程", prefix);
+        }
+        AtomicInteger index = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + index.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * 创建每个任务一个虚拟线程的执行器
+     *
+     * @param prefix: 线程名前缀
+     * @return: JDK不支持虚拟线程时返回null
+     **/
+    public static ExecutorService newVirtualThreadPerTaskExecutor(String prefix) {
+        ThreadFactory factory = virtualThreadFactory(prefix);
+        if (factory == null) {
+            return null;
+        }
+        try {
+            Method method = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) method.invoke(null, factory);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 通过反射调用Thread.ofVirtual().name(prefix, 1).factory()，保证在JDK 8下也能编译
+     */
+    private static ThreadFactory virtualThreadFactory(String prefix) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, prefix, 1L);
+            Method factory = builderClass.getMethod("factory");
+            return (ThreadFactory) factory.invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
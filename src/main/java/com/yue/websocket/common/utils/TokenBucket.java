@@ -0,0 +1,50 @@
+package com.yue.websocket.common.utils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @ProjectName: spring-boot-websocket
+ * @Package: com.yue.websocket.common.utils
+ * @ClassName: TokenBucket
+ * @Author: YUE
+ * @Description: 令牌桶限流，按调用时刻惰性补充令牌，不需要定时线程
+ * @Date: 2026/10/17 23:10
+ * @Version: 1.0
+ */
+public final class TokenBucket {
+
+    private final double permitsPerNano;
+
+    private final double capacity;
+
+    private double tokens;
+
+    private long lastRefill;
+
+    /**
+     * @param permitsPerSecond: 每秒补充的令牌数
+     * @param burst:            桶容量，即允许的突发数，初始为满
+     */
+    public TokenBucket(double permitsPerSecond, double burst) {
+        this.permitsPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.capacity = Math.max(1, burst);
+        this.tokens = capacity;
+        this.lastRefill = System.nanoTime();
+    }
+
+    /**
+     * 尝试取一个令牌
+     *
+     * @return: 没有令牌时返回false，不等待
+     */
+    public synchronized boolean tryAcquire() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * permitsPerNano);
+        lastRefill = now;
+        if (tokens < 1) {
+            return false;
+        }
+        tokens -= 1;
+        return true;
+    }
+}
@@ -0,0 +1,34 @@
+package com.yue.websocket.config;
+
+import com.yue.websocket.cluster.ClusterBus;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+/**
+ * @ProjectName: spring-boot-websocket
+ * @Package: com.yue.websocket.config
+ * @ClassName: ClusterConfig
+ * @Author: YUE
+ * @Description: 集群模式下订阅Redis频道，每个节点只订阅一次广播频道和自己的节点频道
+ * @Date: 2026/10/17 13:40
+ * @Version: 1.0
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "websocket.cluster", name = "enabled", havingValue = "true")
+public class ClusterConfig {
+
+    @Bean
+    public RedisMessageListenerContainer clusterListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                  ClusterBus clusterBus,
+                                                                  WebSocketProperties properties) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(clusterBus, new ChannelTopic(properties.getCluster().getChannel()));
+        container.addMessageListener(clusterBus, new ChannelTopic(clusterBus.nodeChannel(clusterBus.getNodeId())));
+        return container;
+    }
+}
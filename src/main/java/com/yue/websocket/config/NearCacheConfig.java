@@ -0,0 +1,71 @@
+package com.yue.websocket.config;
+
+import com.yue.websocket.common.utils.NearCache;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.data.redis.RedisProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.PatternTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.util.Properties;
+
+/**
+ * @ProjectName: spring-boot-websocket
+ * @Package: com.yue.websocket.config
+ * @ClassName: NearCacheConfig
+ * @Author: YUE
+ * @Description: 开启本地缓存时订阅对应前缀的keyspace通知
+ * @Date: 2026/10/17 18:40
+ * @Version: 1.0
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(prefix = "websocket.near-cache", name = "enabled", havingValue = "true")
+public class NearCacheConfig {
+
+    private static final String KEYSPACE_EVENTS = "Kg$hxe";
+
+    @Bean
+    public RedisMessageListenerContainer nearCacheListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                   NearCache nearCache,
+                                                                   RedisProperties redisProperties,
+                                                                   WebSocketProperties properties) {
+        if (properties.getNearCache().isConfigureKeyspaceEvents()) {
+            configureKeyspaceEvents(connectionFactory);
+        }
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        for (String prefix : nearCache.getPrefixes()) {
+            container.addMessageListener(nearCache,
+                    new PatternTopic("__keyspace@" + redisProperties.getDatabase() + "__:" + prefix + "*"));
+        }
+        return container;
+    }
+
+    /**
+     * 在现有notify-keyspace-events配置上追加本地缓存需要的事件类型
+     */
+    private void configureKeyspaceEvents(RedisConnectionFactory connectionFactory) {
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            Properties config = connection.getConfig("notify-keyspace-events");
+            String current = config == null ? "" : StringUtils.defaultString(config.getProperty("notify-keyspace-events"));
+            StringBuilder events = new StringBuilder(current);
+            for (char c : KEYSPACE_EVENTS.toCharArray()) {
+                if (events.indexOf(String.valueOf(c)) < 0 && !(c != 'K' && current.indexOf('A') >= 0)) {
+                    events.append(c);
+                }
+            }
+            if (!events.toString().equals(current)) {
+                connection.setConfig("notify-keyspace-events", events.toString());
+                log.info("Redis notify-keyspace-events已设置为：{}", events);
+            }
+        } catch (Exception e) {
+            log.warn("设置Redis keyspace通知失败，本地缓存只能依赖过期时间：{}", e.getMessage());
+        }
+    }
+}
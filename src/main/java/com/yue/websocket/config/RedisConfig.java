@@ -3,28 +3,43 @@ package com.yue.websocket.config;
 import com.alibaba.fastjson.support.spring.GenericFastJsonRedisSerializer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
+import javax.annotation.PreDestroy;
 import javax.annotation.Resource;
 import java.io.Serializable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Configuration
 public class RedisConfig {
     @Resource
     private RedisTemplate redisTemplate;
 
+    /**
+     * 每个db一个独立的连接工厂和redisTemplate，首次使用时创建，之后不再修改
+     */
+    private final Map<Integer, RedisTemplate<Serializable, Object>> templates = new ConcurrentHashMap<>();
+
+    /**
+     * 获取指定db的redisTemplate，不再修改共享连接工厂的db，并发调用互不影响
+     *
+     * @param num: db索引
+     * @return: org.springframework.data.redis.core.RedisTemplate
+     */
     public RedisTemplate setDataBase(int num) {
         LettuceConnectionFactory connectionFactory = (LettuceConnectionFactory) redisTemplate.getConnectionFactory();
-        if (connectionFactory != null && num != connectionFactory.getDatabase()) {
-            connectionFactory.setDatabase(num);
-            this.redisTemplate.setConnectionFactory(connectionFactory);
-            connectionFactory.resetConnection();
-            connectionFactory.afterPropertiesSet();
+        if (connectionFactory == null || num == connectionFactory.getDatabase()) {
+            return redisTemplate;
         }
-        return redisTemplate;
+        return templates.computeIfAbsent(num, db -> createRedisTemplate(connectionFactory, db));
     }
 
     @Bean
@@ -36,4 +51,49 @@ public class RedisConfig {
         redisTemplate.setHashValueSerializer(serializer);
         return redisTemplate;
     }
-}
\ No newline at end of file
+
+    /**
+     * 非阻塞的reactiveRedisTemplate，与getRedisTemplate()使用相同的FastJSON序列化，两边读写的数据互通
+     */
+    @Bean
+    public ReactiveRedisTemplate<String, Object> reactiveFastJsonRedisTemplate(ReactiveRedisConnectionFactory connectionFactory) {
+        GenericFastJsonRedisSerializer serializer = new GenericFastJsonRedisSerializer();
+        StringRedisSerializer stringSerializer = new StringRedisSerializer();
+        RedisSerializationContext<String, Object> context = RedisSerializationContext
+                .<String, Object>newSerializationContext(stringSerializer)
+                .value(serializer)
+                .hashKey(stringSerializer)
+                .hashValue(serializer)
+                .build();
+        return new ReactiveRedisTemplate<>(connectionFactory, context);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        for (RedisTemplate<Serializable, Object> template : templates.values()) {
+            ((LettuceConnectionFactory) template.getConnectionFactory()).destroy();
+        }
+        templates.clear();
+    }
+
+    /**
+     * 复制默认连接工厂的地址、密码和客户端配置(共享同一套Lettuce线程资源)，只替换db
+     */
+    private RedisTemplate<Serializable, Object> createRedisTemplate(LettuceConnectionFactory base, int db) {
+        RedisStandaloneConfiguration standalone = base.getStandaloneConfiguration();
+        RedisStandaloneConfiguration configuration = new RedisStandaloneConfiguration(standalone.getHostName(), standalone.getPort());
+        configuration.setPassword(standalone.getPassword());
+        configuration.setDatabase(db);
+        LettuceConnectionFactory connectionFactory = new LettuceConnectionFactory(configuration, base.getClientConfiguration());
+        connectionFactory.afterPropertiesSet();
+
+        RedisTemplate<Serializable, Object> template = new RedisTemplate<>();
+        template.setConnectionFactory(connectionFactory);
+        template.setKeySerializer(redisTemplate.getKeySerializer());
+        template.setHashKeySerializer(redisTemplate.getHashKeySerializer());
+        template.setValueSerializer(redisTemplate.getValueSerializer());
+        template.setHashValueSerializer(redisTemplate.getHashValueSerializer());
+        template.afterPropertiesSet();
+        return template;
+    }
+}
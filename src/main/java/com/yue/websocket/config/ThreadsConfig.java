@@ -0,0 +1,53 @@
+package com.yue.websocket.config;
+
+import com.yue.websocket.common.utils.ThreadUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.task.TaskSchedulerCustomizer;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * @ProjectName: spring-boot-websocket
+ * @Package: com.yue.websocket.config
+ * @ClassName: ThreadsConfig
+ * @Author: YUE
+ * @Description: 虚拟线程模式(JDK 21+)：Tomcat请求线程(含WebSocket回调)和@Scheduled任务改用虚拟线程
+ * 通过application-virtual-threads.yml一起开启；JDK不支持时保持平台线程并打印警告
+ * @Date: 2026/10/18 0:40
+ * @Version: 1.0
+ */
+@Slf4j
+@Configuration
+public class ThreadsConfig {
+
+    /**
+     * Tomcat每个请求一个虚拟线程，阻塞的数据库/Redis调用不再受线程池大小限制
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "websocket.threads", name = "tomcat-virtual", havingValue = "true")
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> {
+            ExecutorService executor = ThreadUtils.newVirtualThreadPerTaskExecutor("http-vt-");
+            if (executor == null) {
+                log.warn("当前JDK不支持虚拟线程，Tomcat使用平台线程池");
+                return;
+            }
+            protocolHandler.setExecutor(executor);
+            log.info("Tomcat已切换为虚拟线程执行");
+        };
+    }
+
+    /**
+     * 定时任务线程使用虚拟线程，配合spring.task.scheduling.pool.size调大并发
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "websocket.threads", name = "scheduler-virtual", havingValue = "true")
+    public TaskSchedulerCustomizer virtualThreadTaskSchedulerCustomizer() {
+        return scheduler -> scheduler.setThreadFactory(ThreadUtils.newThreadFactory("scheduling-", true));
+    }
+}
@@ -1,8 +1,12 @@
 package com.yue.websocket.config;
 
+import com.yue.websocket.common.filter.HandshakeAdmissionFilter;
+import com.yue.websocket.sever.HandshakeAdmission;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.socket.server.standard.ServerEndpointExporter;
+import org.springframework.web.socket.server.standard.ServletServerContainerFactoryBean;
 
 /**
  * @ProjectName: spring-boot-websocket
@@ -22,4 +26,33 @@ public class WebSocketConfig {
     public ServerEndpointExporter serverEndpointExporter() {
         return new ServerEndpointExporter();
     }
+
+    /**
+     * 单条消息的最大长度：Tomcat在握手时按这个大小为会话分配消息缓冲区，超长消息直接以1009关闭连接，
+     * 不会交给onMessage，所以只能在容器级别设置
+     */
+    @Bean
+    public ServletServerContainerFactoryBean webSocketContainer(WebSocketProperties properties) {
+        int maxFrameSize = properties.getInbound().getMaxFrameSize();
+        ServletServerContainerFactoryBean container = new ServletServerContainerFactoryBean();
+        container.setMaxTextMessageBufferSize(maxFrameSize);
+        container.setMaxBinaryMessageBufferSize(maxFrameSize);
+        return container;
+    }
+
+    /**
+     * 握手准入过滤器：Tomcat的WsFilter以isMatchAfter=true注册，这里注册的过滤器在它之前执行，
+     * 被拒绝的握手不会进入升级流程
+     */
+    @Bean
+    public FilterRegistrationBean<HandshakeAdmissionFilter> handshakeAdmissionFilter(HandshakeAdmission admission,
+                                                                                     WebSocketProperties properties) {
+        WebSocketProperties.Admission config = properties.getAdmission();
+        FilterRegistrationBean<HandshakeAdmissionFilter> registration = new FilterRegistrationBean<>(
+                new HandshakeAdmissionFilter(admission, "/webSocket/", config.isTrustForwardedFor(),
+                        config.getRetryAfterSeconds()));
+        registration.addUrlPatterns("/webSocket/*");
+        registration.setAsyncSupported(true);
+        return registration;
+    }
 }
@@ -0,0 +1,468 @@
+package com.yue.websocket.config;
+
+import com.yue.websocket.sever.InboundPolicy;
+import com.yue.websocket.sever.OverflowPolicy;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @ProjectName: spring-boot-websocket
+ * @Package: com.yue.websocket.config
+ * @ClassName: WebSocketProperties
+ * @Author: YUE
+ * @Description: websocket相关配置
+ * @Date: 2026/10/17 9:42
+ * @Version: 1.0
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "websocket")
+public class WebSocketProperties {
+
+    /**
+     * 线程模型配置
+     */
+    private Threads threads = new Threads();
+
+    /**
+     * 发送队列配置
+     */
+    private Send send = new Send();
+
+    /**
+     * 群发配置
+     */
+    private Broadcast broadcast = new Broadcast();
+
+    /**
+     * 消息跟踪配置
+     */
+    private Trace trace = new Trace();
+
+    /**
+     * 集群配置
+     */
+    private Cluster cluster = new Cluster();
+
+    /**
+     * 客户端消息限流配置
+     */
+    private Inbound inbound = new Inbound();
+
+    /**
+     * 客户端消息异步处理配置
+     */
+    private Dispatch dispatch = new Dispatch();
+
+    /**
+     * 握手准入配置
+     */
+    private Admission admission = new Admission();
+
+    /**
+     * 心跳检测配置
+     */
+    private Heartbeat heartbeat = new Heartbeat();
+
+    /**
+     * 可靠投递配置
+     */
+    private Reliable reliable = new Reliable();
+
+    /**
+     * 合并推送配置
+     */
+    private Conflation conflation = new Conflation();
+
+    /**
+     * ws_test总数推送配置
+     */
+    private Count count = new Count();
+
+    /**
+     * ws_test批量写入配置
+     */
+    private Insert insert = new Insert();
+
+    /**
+     * RedisUtils本地缓存配置
+     */
+    private NearCache nearCache = new NearCache();
+
+    /**
+     * 每日序列号配置
+     */
+    private Sequence sequence = new Sequence();
+
+    /**
+     * 消息编解码配置
+     */
+    private Codec codec = new Codec();
+
+    @Data
+    public static class Send {
+        /**
+         * 每个会话最多排队的消息数
+         */
+        private int queueCapacity = 256;
+
+        /**
+         * 队列满时的处理策略
+         */
+        private OverflowPolicy overflowPolicy = OverflowPolicy.DROP_OLDEST;
+
+        /**
+         * 排队消息数达到该值即视为慢消费者
+         */
+        private int slowConsumerThreshold = 64;
+    }
+
+    @Data
+    public static class Broadcast {
+        /**
+         * 会话注册表分片数，每个分片一个群发线程，小于等于0时取CPU核数
+         */
+        private int shards = 0;
+
+        /**
+         * 群发线程是否使用虚拟线程(JDK 21+)
+         */
+        private boolean virtualThreads = false;
+    }
+
+    @Data
+    public static class Trace {
+        /**
+         * 采样率，每N条命中跟踪的消息记录1条
+         */
+        private int sampleRate = 1;
+
+        /**
+         * 异步日志队列长度，满了直接丢弃
+         */
+        private int queueCapacity = 1024;
+    }
+
+    @Data
+    public static class Cluster {
+        /**
+         * 是否开启集群广播，开启后通过Redis发布订阅把消息转发给其他节点
+         */
+        private boolean enabled = false;
+
+        /**
+         * 节点ID，为空时启动随机生成
+         */
+        private String nodeId;
+
+        /**
+         * 集群广播频道
+         */
+        private String channel = "websocket:broadcast";
+
+        /**
+         * 每帧最多合并的消息数
+         */
+        private int batchSize = 64;
+
+        /**
+         * 合并等待时间(毫秒)
+         */
+        private long batchWindowMillis = 5;
+
+        /**
+         * 会话目录key前缀，每个参数一个hash
+         */
+        private String directoryKeyPrefix = "websocket:directory:";
+
+        /**
+         * 会话目录过期时间(秒)，每1/3过期时间心跳续期一次
+         */
+        private long directoryTtlSeconds = 60;
+
+        /**
+         * 会话目录登记/注销的合并写入间隔(毫秒)
+         */
+        private long directoryFlushMillis = 200;
+    }
+
+    @Data
+    public static class Inbound {
+        /**
+         * 每个会话每秒允许发送的消息数，0表示不限制
+         */
+        private double permitsPerSecond = 20;
+
+        /**
+         * 允许的突发消息数
+         */
+        private int burst = 40;
+
+        /**
+         * 超过限流时的处理策略
+         */
+        private InboundPolicy policy = InboundPolicy.DROP;
+
+        /**
+         * 单条消息最大长度(文本按字符，二进制按字节)，超出时容器以1009关闭连接
+         */
+        private int maxFrameSize = 8192;
+    }
+
+    @Data
+    public static class Dispatch {
+        /**
+         * 是否在工作线程中处理客户端消息，关闭时在容器I/O线程中直接处理
+         */
+        private boolean enabled = true;
+
+        /**
+         * 工作线程数，0表示CPU核数*2
+         */
+        private int workers = 0;
+
+        /**
+         * 是否使用虚拟线程，JDK不支持时退回平台线程
+         */
+        private boolean virtualThreads = false;
+
+        /**
+         * 所有会话已入队未处理完的消息上限
+         */
+        private int maxInFlight = 10000;
+
+        /**
+         * 单个会话排队消息上限
+         */
+        private int maxQueuedPerSession = 256;
+
+        /**
+         * 超过上限时的处理策略：DROP丢弃消息，CLOSE以1013关闭连接
+         */
+        private InboundPolicy policy = InboundPolicy.DROP;
+    }
+
+    @Data
+    public static class Admission {
+        /**
+         * 是否开启握手准入控制
+         */
+        private boolean enabled = true;
+
+        /**
+         * 本节点在线连接数上限，0表示不限制
+         */
+        private int maxSessions = 100000;
+
+        /**
+         * 每个IP每秒允许的握手数及突发数
+         */
+        private double ipPermitsPerSecond = 20;
+
+        private int ipBurst = 50;
+
+        /**
+         * 每个连接参数(门店)每秒允许的握手数及突发数
+         */
+        private double paramPermitsPerSecond = 2;
+
+        private int paramBurst = 5;
+
+        /**
+         * 最多跟踪的IP/参数个数，超出后淘汰最久未使用的
+         */
+        private long trackedKeys = 100000;
+
+        /**
+         * 是否按X-Forwarded-For取客户端IP，只在前面有可信代理时开启
+         */
+        private boolean trustForwardedFor = false;
+
+        /**
+         * 拒绝时返回的Retry-After(秒)
+         */
+        private int retryAfterSeconds = 5;
+    }
+
+    @Data
+    public static class Heartbeat {
+        /**
+         * 是否开启心跳检测
+         */
+        private boolean enabled = true;
+
+        /**
+         * 空闲多久(毫秒)没有收到客户端数据时发送ping
+         */
+        private long idleTimeoutMillis = 60000;
+
+        /**
+         * 发送ping后等待pong的时间(毫秒)，超时关闭连接
+         */
+        private long pongTimeoutMillis = 10000;
+
+        /**
+         * 时间轮每格的时长(毫秒)，即检测精度
+         */
+        private long tickMillis = 1000;
+
+        /**
+         * 时间轮格数，向上取2的幂
+         */
+        private int wheelSize = 512;
+    }
+
+    @Data
+    public static class Conflation {
+        /**
+         * 合并窗口(毫秒)，窗口内同一主题只发送最新一条，0表示不合并
+         */
+        private long windowMillis = 50;
+    }
+
+    @Data
+    public static class Count {
+        /**
+         * 总数变化后的推送间隔(毫秒)，由定时任务通过占位符读取
+         */
+        private long pushIntervalMillis = 500;
+
+        /**
+         * 从数据库重新统计总数的校准间隔(毫秒)，由定时任务通过占位符读取
+         */
+        private long reconcileIntervalMillis = 300000;
+
+        /**
+         * 是否以状态同步方式推送：新会话先收到快照，之后只推送变化的字段
+         * 关闭时保持原来的文本推送
+         */
+        private boolean stateSync = false;
+    }
+
+    @Data
+    public static class Insert {
+        /**
+         * 每批最多写入的条数
+         */
+        private int batchSize = 500;
+
+        /**
+         * 攒批最长等待时间(毫秒)
+         */
+        private long flushMillis = 50;
+
+        /**
+         * 写入队列长度
+         */
+        private int queueCapacity = 10000;
+
+        /**
+         * 队列满时提交方最长等待时间(毫秒)，超时拒绝
+         */
+        private long offerTimeoutMillis = 100;
+    }
+
+    @Data
+    public static class NearCache {
+        /**
+         * 是否开启本地缓存，开启后RedisUtils.get/hashGet对匹配前缀的key先查本地
+         */
+        private boolean enabled = false;
+
+        /**
+         * 需要本地缓存的key前缀，同时作为命中率统计的维度
+         */
+        private List<String> prefixes = new ArrayList<>();
+
+        /**
+         * 最多缓存的条目数，String类型按key计，Hash类型按字段计
+         */
+        private long maximumSize = 10000;
+
+        /**
+         * 写入后过期时间(秒)，keyspace通知丢失时的兜底
+         */
+        private long ttlSeconds = 60;
+
+        /**
+         * 启动时是否自动开启Redis的keyspace通知(在现有配置上追加Kg$hxe)
+         */
+        private boolean configureKeyspaceEvents = false;
+    }
+
+    @Data
+    public static class Sequence {
+        /**
+         * 每次从Redis预取的号段长度，重启时未归还的号段会被跳过，不宜过大
+         */
+        private int step = 100;
+    }
+
+    @Data
+    public static class Codec {
+        /**
+         * 二进制编解码的字段名字典，字典中的字段名以下标代替，客户端需使用同一份字典
+         */
+        private List<String> dictionary = new ArrayList<>();
+
+        /**
+         * 是否允许协商permessage-deflate压缩，关闭后握手时不返回任何扩展
+         */
+        private boolean permessageDeflate = true;
+
+        /**
+         * 二进制消息解码时允许的最大字符串字节数/数组元素数/对象字段数，超出则丢弃该消息
+         */
+        private int maxDecodeLength = 1024 * 1024;
+    }
+
+    @Data
+    public static class Threads {
+        /**
+         * Tomcat请求线程(含WebSocket回调)是否使用虚拟线程，只在启动时生效
+         */
+        private boolean tomcatVirtual = false;
+
+        /**
+         * 定时任务线程是否使用虚拟线程
+         */
+        private boolean schedulerVirtual = false;
+    }
+
+    @Data
+    public static class Reliable {
+        /**
+         * 每个主题在内存中保留的最近消息条数，超出后最早的消息被挤出
+         */
+        private int ringCapacity = 1024;
+
+        /**
+         * 被挤出的消息是否写入Redis Stream，用于更长时间的断线补发
+         */
+        private boolean streamEnabled = false;
+
+        /**
+         * Redis Stream的key前缀，完整key为 前缀+主题+":"+epoch
+         */
+        private String streamKeyPrefix = "websocket:stream:";
+
+        /**
+         * 每个Stream保留的最大条数
+         */
+        private long streamMaxLen = 100000;
+
+        /**
+         * Stream过期时间(秒)
+         */
+        private long streamTtlSeconds = 86400;
+
+        /**
+         * 记录客户端确认位置的最大条数
+         */
+        private long ackCacheSize = 100000;
+    }
+}
@@ -1,13 +1,22 @@
 package com.yue.websocket.controller;
 
+import com.yue.websocket.common.utils.NearCache;
+import com.yue.websocket.sever.MessageTracer;
 import com.yue.websocket.sever.WebSocketServer;
+import com.yue.websocket.sever.codec.MessageCodecs;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.servlet.ModelAndView;
 
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 /**
  * @ProjectName: spring-boot-websocket
  * @Package: com.yue.websocket.controller
@@ -24,9 +33,95 @@ public class WebSocketController {
     @Autowired
     private WebSocketServer webSocketServer;
 
+    @Autowired
+    private MessageTracer messageTracer;
+
+    @Autowired
+    private NearCache nearCache;
+
+    @Autowired
+    private MessageCodecs messageCodecs;
+
     @GetMapping("/webSocket")
     public String socket() {
-        webSocketServer.sendMessage("111111111111111111");
+        webSocketServer.sendLatest(null, "111111111111111111");
+        return null;
+    }
+
+    /**
+     * 按主题推送，只有订阅了该主题(如门店ID)的客户端能收到
+     * conflate=true时合并窗口内只发送最新一条
+     */
+    @GetMapping("/topic/{topic}")
+    public String topic(@PathVariable("topic") String topic, @RequestParam("message") String message,
+                        @RequestParam(value = "conflate", defaultValue = "false") boolean conflate) {
+        if (conflate) {
+            webSocketServer.sendLatest(topic, message);
+        } else {
+            webSocketServer.sendMessage(topic, message);
+        }
+        return null;
+    }
+
+    /**
+     * 可靠推送，消息带编号，客户端断线重连后可补发
+     */
+    @GetMapping("/reliable/{topic}")
+    public String reliable(@PathVariable("topic") String topic, @RequestParam("message") String message) {
+        webSocketServer.sendReliable(topic, message);
         return null;
     }
+
+    /**
+     * 点对点推送，只路由到持有该参数连接的节点
+     */
+    @GetMapping("/sendTo/{param}")
+    public String sendTo(@PathVariable("param") String param, @RequestParam("message") String message) {
+        webSocketServer.sendTo(param, message);
+        return null;
+    }
+
+    /**
+     * 开启/关闭指定会话的消息跟踪
+     */
+    @GetMapping("/trace/session/{sessionId}")
+    public Set<String> traceSession(@PathVariable("sessionId") String sessionId,
+                                    @RequestParam(value = "enabled", defaultValue = "true") boolean enabled) {
+        messageTracer.traceSession(sessionId, enabled);
+        return messageTracer.getSessions();
+    }
+
+    /**
+     * 开启/关闭指定主题的消息跟踪
+     */
+    @GetMapping("/trace/topic/{topic}")
+    public Set<String> traceTopic(@PathVariable("topic") String topic,
+                                  @RequestParam(value = "enabled", defaultValue = "true") boolean enabled) {
+        messageTracer.traceTopic(topic, enabled);
+        return messageTracer.getTopics();
+    }
+
+    /**
+     * 查看RedisUtils本地缓存各前缀的命中率
+     */
+    @GetMapping("/nearCache/stats")
+    public Map<String, Map<String, Object>> nearCacheStats() {
+        return nearCache.stats();
+    }
+
+    /**
+     * 查看消费过慢的客户端
+     */
+    @GetMapping("/slowConsumers")
+    public List<Map<String, Object>> slowConsumers() {
+        return webSocketServer.getSlowConsumers();
+    }
+
+    /**
+     * 二进制编解码使用的字段名字典，下标即编码后的字段号
+     */
+    @GetMapping("/codec/dictionary")
+    public List<String> codecDictionary() {
+        return messageCodecs.getBinaryCodec().getDictionary();
+    }
 }
@@ -1,6 +1,7 @@
 package com.yue.websocket.job;
 
 import com.yue.websocket.mapper.WebSocketMapper;
+import com.yue.websocket.service.WsTestBatchWriter;
 import com.yue.websocket.sever.WebSocketServer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -8,7 +9,6 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.HashMap;
@@ -36,8 +36,13 @@ public class InsertScheduleTask {
     @Autowired
     private WebSocketMapper webSocketMapper;
 
+    @Autowired
+    private WsTestBatchWriter wsTestBatchWriter;
+
+    /**
+     * 数据交给批量写入器，按批次多行插入，不再每行一个事务
+     */
     @Scheduled(cron = "*/10 * * * * ?")
-    @Transactional(rollbackFor = Exception.class)
     public void configureTasks() {
 //        Map<String,Object> map = new HashMap<>();
 //        map.put("merCode","100000");
@@ -48,7 +53,7 @@ public class InsertScheduleTask {
 //        map.put("createUser","Admin");
 //        map.put("updateTime","2021-07-30 10:12:00");
 //        map.put("updateUser","Admin");
-//        webSocketMapper.insert(map);
+//        wsTestBatchWriter.submit(map);
 //        logger.info("===============>插入数据成功: " + LocalDateTime.now());
     }
 }
@@ -1,7 +1,6 @@
 package com.yue.websocket.job;
 
-import com.yue.websocket.mapper.WebSocketMapper;
-import com.yue.websocket.sever.WebSocketServer;
+import com.yue.websocket.service.WsTestCountService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -9,8 +8,6 @@ import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
-import java.time.LocalDateTime;
-
 /**
  * @ProjectName: spring-boot-websocket
  * @Package: com.yue.websocket.job
@@ -27,16 +24,22 @@ public class WebSocketScheduleTask {
     private static final Logger logger = LoggerFactory.getLogger(WebSocketScheduleTask.class);
 
     @Autowired
-    private WebSocketServer webSocketServer;
-
-    @Autowired
-    private WebSocketMapper webSocketMapper;
+    private WsTestCountService wsTestCountService;
 
-    @Scheduled(cron = "*/3 * * * * ?")
+    /**
+     * 总数由新增事件增量维护，这里只在有变化时推送，间隔内的多次变化合并成一次
+     */
+    @Scheduled(fixedDelayString = "${websocket.count.push-interval-millis:500}")
     public void configureTasks() {
-//        Integer count = webSocketMapper.selectCount();
-//        logger.info("===============>总统计数: " + count);
-//        webSocketServer.sendMessage("+++++++++实时推送的消息++++++"+ count);
-//        logger.info("===============>执行静态定时任务时间: " + LocalDateTime.now());
+        wsTestCountService.pushIfChanged();
+    }
+
+    /**
+     * 定时从数据库校准总数，修正增量维护可能累积的偏差
+     */
+    @Scheduled(initialDelayString = "${websocket.count.reconcile-interval-millis:300000}",
+            fixedDelayString = "${websocket.count.reconcile-interval-millis:300000}")
+    public void reconcileCount() {
+        wsTestCountService.reconcile();
     }
 }
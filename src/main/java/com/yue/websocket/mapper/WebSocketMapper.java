@@ -1,7 +1,9 @@
 package com.yue.websocket.mapper;
 
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
 
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -18,4 +20,9 @@ public interface WebSocketMapper {
     Integer selectCount();
 
     int insert(Map<String, Object> map);
+
+    /**
+     * 多行批量插入
+     */
+    int insertBatch(@Param("list") List<Map<String, Object>> list);
 }
@@ -0,0 +1,177 @@
+package com.yue.websocket.service;
+
+import com.yue.websocket.common.utils.ThreadUtils;
+import com.yue.websocket.config.WebSocketProperties;
+import com.yue.websocket.mapper.WebSocketMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @ProjectName: spring-boot-websocket
+ * @Package: com.yue.websocket.service
+ * @ClassName: WsTestBatchWriter
+ * @Author: YUE
+ * @Description: ws_test异步批量写入：数据先进有界队列，攒够条数或到达时间后一次多行insert，一个批次一个事务
+ * 单线程按提交顺序写入，返回的Future也按提交顺序完成；写入线程被中断或停止后未写入的数据以异常完成，不会一直等待
+ * @Date: 2026/10/17 16:00
+ * @Version: 1.0
+ */
+@Slf4j
+@Service
+public class WsTestBatchWriter {
+
+    private final WebSocketMapper webSocketMapper;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final WebSocketProperties.Insert insert;
+
+    private final BlockingQueue<Pending> queue;
+
+    private volatile boolean running = true;
+
+    private Thread worker;
+
+    public WsTestBatchWriter(WebSocketMapper webSocketMapper, TransactionTemplate transactionTemplate,
+                             WebSocketProperties properties) {
+        this.webSocketMapper = webSocketMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.insert = properties.getInsert();
+        this.queue = new ArrayBlockingQueue<>(insert.getQueueCapacity());
+    }
+
+    @PostConstruct
+    public void start() {
+        worker = ThreadUtils.newThreadFactory("ws-insert-", false).newThread(this::run);
+        worker.start();
+    }
+
+    /**
+     * 提交一条待写入的数据
+     *
+     * @param row: 字段同WebSocketMapper.insert
+     * @return: 写入提交后完成；队列满且等待超时时以RejectedExecutionException失败
+     */
+    public CompletableFuture<Void> submit(Map<String, Object> row) {
+        Pending pending = new Pending(row);
+        try {
+            if (!running || !queue.offer(pending, insert.getOfferTimeoutMillis(), TimeUnit.MILLISECONDS)) {
+                pending.future.completeExceptionally(new RejectedExecutionException("ws_test写入队列已满"));
+            } else if (!running && queue.remove(pending)) {
+                // 入队时正好停止，写入线程和failQueued都可能已经不会再取这条，自己移除后失败返回
+                pending.future.completeExceptionally(new RejectedExecutionException("ws_test写入已停止"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pending.future.completeExceptionally(e);
+        }
+        return pending.future;
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        if (worker != null) {
+            worker.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        // 写入线程退出后才进入队列的数据
+        failQueued(new RejectedExecutionException("ws_test写入已停止"));
+    }
+
+    Thread getWorker() {
+        return worker;
+    }
+
+    private void run() {
+        int batchSize = insert.getBatchSize();
+        List<Pending> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(insert.getFlushMillis(), TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(insert.getFlushMillis());
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    Pending next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                // 中断后poll会立即再次抛出，不能继续循环：当前批次和队列中剩余的数据都以异常完成
+                running = false;
+                log.error("ws_test写入线程被中断，{}条未写入的数据以失败返回", batch.size() + queue.size());
+                fail(batch, e);
+                failQueued(e);
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void failQueued(Exception cause) {
+        List<Pending> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        fail(rest, cause);
+    }
+
+    private static void fail(List<Pending> pendings, Exception cause) {
+        for (Pending pending : pendings) {
+            pending.future.completeExceptionally(cause);
+        }
+    }
+
+    private void flush(List<Pending> batch) {
+        List<Map<String, Object>> rows = new ArrayList<>(batch.size());
+        for (Pending pending : batch) {
+            rows.add(pending.row);
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> webSocketMapper.insertBatch(rows));
+            for (Pending pending : batch) {
+                pending.future.complete(null);
+            }
+        } catch (Exception e) {
+            log.error("批量写入ws_test {}条数据异常：{}", rows.size(), e.getMessage());
+            fail(batch, e);
+        }
+    }
+
+    private static final class Pending {
+
+        private final Map<String, Object> row;
+
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private Pending(Map<String, Object> row) {
+            this.row = row;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.yue.websocket.service;
+
+import com.yue.websocket.common.utils.RedisUtils;
+import com.yue.websocket.config.WebSocketProperties;
+import com.yue.websocket.mapper.WebSocketMapper;
+import com.yue.websocket.sever.StateSync;
+import com.yue.websocket.sever.WebSocketServer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @ProjectName: spring-boot-websocket
+ * @Package: com.yue.websocket.service
+ * @ClassName: WsTestCountService
+ * @Author: YUE
+ * @Description: ws_test总数的增量维护：启动时查询一次，之后由新增事件累加，只在变化时推送
+ * 集群模式下计数保存在Redis，各节点共享；Redis累加失败时尽快从数据库重新统计，另有定时校准修正累计误差
+ * @Date: 2026/10/17 15:20
+ * @Version: 1.0
+ */
+@Slf4j
+@Service
+public class WsTestCountService {
+
+    private static final String COUNT_KEY = "websocket:ws_test:count";
+
+    /**
+     * 累加失败后重新统计的最小间隔(毫秒)，避免Redis不可用时每次推送都查库
+     */
+    private static final long RESYNC_RETRY_MILLIS = 5000;
+
+    private final WebSocketMapper webSocketMapper;
+
+    private final WebSocketServer webSocketServer;
+
+    private final RedisUtils redisUtils;
+
+    private final StateSync stateSync;
+
+    private final boolean shared;
+
+    private final boolean stateSyncEnabled;
+
+    private final AtomicLong count = new AtomicLong(-1);
+
+    /**
+     * 上次推送后是否有变化，多次变化在下次推送时合并成一次
+     */
+    private final AtomicBoolean dirty = new AtomicBoolean();
+
+    /**
+     * Redis累加失败，共享计数已不可信，需要从数据库重新统计
+     */
+    private final AtomicBoolean resyncNeeded = new AtomicBoolean();
+
+    private volatile long lastResyncFailure;
+
+    public WsTestCountService(WebSocketMapper webSocketMapper, WebSocketServer webSocketServer,
+                              RedisUtils redisUtils, StateSync stateSync, WebSocketProperties properties) {
+        this.webSocketMapper = webSocketMapper;
+        this.webSocketServer = webSocketServer;
+        this.redisUtils = redisUtils;
+        this.stateSync = stateSync;
+        this.shared = properties.getCluster().isEnabled();
+        this.stateSyncEnabled = properties.getCount().isStateSync();
+    }
+
+    /**
+     * 启动时从数据库统计一次总数，集群模式下直接覆盖Redis中的计数，不沿用重启前可能已漂移的值
+     * 失败时由推送任务稍后重试
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        reconcile();
+        log.info("===============>总统计数初始化: {}", count.get());
+    }
+
+    /**
+     * 新增数据提交后累加计数，没有事务时直接处理
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onInserted(WsTestInsertedEvent event) {
+        if (count.get() < 0) {
+            return;
+        }
+        if (shared) {
+            // 数据已提交，异常不能抛回给新增的调用方
+            try {
+                count.set(redisUtils.incr(COUNT_KEY, event.getRows()));
+            } catch (Exception e) {
+                log.error("累加共享总统计数异常，稍后从数据库重新统计：{}", e.getMessage());
+                count.addAndGet(event.getRows());
+                resyncNeeded.set(true);
+            }
+        } else {
+            count.addAndGet(event.getRows());
+        }
+        dirty.set(true);
+    }
+
+    /**
+     * 从数据库重新统计并覆盖计数，修正累加失败或遗漏造成的偏差
+     * 与并发新增存在短暂竞争时的误差由下一次校准修正
+     */
+    public void reconcile() {
+        resyncNeeded.set(false);
+        try {
+            Integer total = webSocketMapper.selectCount();
+            long value = total == null ? 0 : total;
+            if (shared && !redisUtils.set(COUNT_KEY, value)) {
+                retryLater();
+            }
+            if (count.getAndSet(value) != value) {
+                dirty.set(true);
+                log.info("===============>总统计数校准为: {}", value);
+            }
+        } catch (Exception e) {
+            retryLater();
+            log.error("校准总统计数异常：{}", e.getMessage());
+        }
+    }
+
+    /**
+     * 校准失败，间隔RESYNC_RETRY_MILLIS后由推送任务重试
+     */
+    private void retryLater() {
+        lastResyncFailure = System.currentTimeMillis();
+        resyncNeeded.set(true);
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * 有变化时推送最新总数，没有变化不推送
+     * 状态同步模式下更新全局快照的count字段，只向本节点会话推送增量；集群模式下其他节点的新增
+     * 只体现在Redis计数上，所以每次先从Redis刷新，由StateSync比较后决定是否推送
+     */
+    public void pushIfChanged() {
+        if (resyncNeeded.get() && System.currentTimeMillis() - lastResyncFailure >= RESYNC_RETRY_MILLIS) {
+            reconcile();
+        }
+        if (stateSyncEnabled) {
+            if (shared) {
+                refreshFromRedis();
+            }
+            dirty.set(false);
+            if (count.get() >= 0) {
+                stateSync.update(StateSync.GLOBAL, Collections.singletonMap("count", count.get()));
+            }
+        } else if (dirty.compareAndSet(true, false)) {
+            webSocketServer.sendMessage("+++++++++实时推送的消息++++++" + count.get());
+        }
+    }
+
+    /**
+     * 读取集群共享的计数
+     */
+    private void refreshFromRedis() {
+        try {
+            String value = redisUtils.getStrValue(COUNT_KEY);
+            if (value != null) {
+                count.set(Long.parseLong(value));
+            }
+        } catch (Exception e) {
+            log.error("读取共享总统计数异常：{}", e.getMessage());
+        }
+    }
+}
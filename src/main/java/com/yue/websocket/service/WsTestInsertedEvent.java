@@ -0,0 +1,28 @@
+package com.yue.websocket.service;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * @ProjectName: spring-boot-websocket
+ * @Package: com.yue.websocket.service
+ * @ClassName: WsTestInsertedEvent
+ * @Author: YUE
+ * @Description: ws_test新增数据事件，携带本次新增的行数
+ * @Date: 2026/10/17 15:10
+ * @Version: 1.0
+ */
+public class WsTestInsertedEvent extends ApplicationEvent {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int rows;
+
+    public WsTestInsertedEvent(Object source, int rows) {
+        super(source);
+        this.rows = rows;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+}
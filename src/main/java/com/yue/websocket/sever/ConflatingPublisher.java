@@ -0,0 +1,172 @@
+package com.yue.websocket.sever;
+
+import com.yue.websocket.cluster.ClusterBus;
+import com.yue.websocket.common.utils.ThreadUtils;
+import com.yue.websocket.config.WebSocketProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * @ProjectName: spring-boot-websocket
+ * @Package: com.yue.websocket.sever
+ * @ClassName: ConflatingPublisher
+ * @Author: YUE
+ * @Description: 合并推送：每个主题只保留最新一条消息，窗口结束时统一发出，中间值直接丢弃
+ * 发布方只做CAS，不加锁、不阻塞；适合实时计数这类只关心最新值的数据
+ * 槽位发出后即退役并从表中移除，不再发布的主题不会一直占用内存
+ * @Date: 2026/10/17 21:30
+ * @Version: 1.0
+ */
+@Slf4j
+@Component
+public class ConflatingPublisher {
+
+    /**
+     * 群发消息在槽位表中的key
+     */
+    private static final String BROADCAST = "*";
+
+    /**
+     * 槽位已退役的标记，发布方遇到时帮忙移除并换用新槽位
+     */
+    private static final Object RETIRED = new Object();
+
+    private final ClusterBus clusterBus;
+
+    private final long windowMillis;
+
+    private final Map<String, Slot> slots = new ConcurrentHashMap<>();
+
+    /**
+     * 窗口内有新值的槽位，每个槽位从空变为非空时入队一次
+     */
+    private final Queue<Slot> dirty = new ConcurrentLinkedQueue<>();
+
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    private final AtomicLong published = new AtomicLong();
+
+    private final AtomicLong delivered = new AtomicLong();
+
+    private final ScheduledExecutorService flusher;
+
+    public ConflatingPublisher(ClusterBus clusterBus, WebSocketProperties properties) {
+        this.clusterBus = clusterBus;
+        this.windowMillis = properties.getConflation().getWindowMillis();
+        this.flusher = Executors.newSingleThreadScheduledExecutor(ThreadUtils.newThreadFactory("ws-conflate-", false));
+    }
+
+    /**
+     * 发布最新值，窗口内同一主题的旧值被覆盖
+     *
+     * @param topic:   主题，为空时群发
+     * @param message: 消息内容
+     */
+    public void publish(String topic, String message) {
+        published.incrementAndGet();
+        if (windowMillis <= 0) {
+            delivered.incrementAndGet();
+            clusterBus.publish(topic, message);
+            return;
+        }
+        String key = topic == null ? BROADCAST : topic;
+        while (true) {
+            Slot slot = slots.get(key);
+            if (slot == null) {
+                slot = slots.computeIfAbsent(key, k -> new Slot(key, topic));
+            }
+            Object previous = slot.latest.get();
+            if (previous == RETIRED) {
+                slots.remove(key, slot);
+                continue;
+            }
+            if (slot.latest.compareAndSet(previous, message)) {
+                if (previous == null) {
+                    dirty.offer(slot);
+                    if (flushScheduled.compareAndSet(false, true)) {
+                        flusher.schedule(this::flush, windowMillis, TimeUnit.MILLISECONDS);
+                    }
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * 发出所有槽位的最新值
+     * 先清除调度标记再取值，取值之后的新发布会重新入队并安排下一个窗口
+     * 取值时直接把槽位置为退役并移除：之前的值已取走，之后的发布会换用新槽位，同一主题不会同时有两个待发的值
+     */
+    void flush() {
+        flushScheduled.set(false);
+        Slot slot;
+        while ((slot = dirty.poll()) != null) {
+            Object message = slot.latest.getAndSet(RETIRED);
+            slots.remove(slot.key, slot);
+            if (message != null && message != RETIRED) {
+                delivered.incrementAndGet();
+                try {
+                    clusterBus.publish(slot.topic, (String) message);
+                } catch (Exception e) {
+                    log.error("合并推送主题[{}]异常：{}", slot.topic, e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * 当前的槽位数
+     */
+    int getSlotCount() {
+        return slots.size();
+    }
+
+    /**
+     * 发布的消息数
+     */
+    public long getPublished() {
+        return published.get();
+    }
+
+    /**
+     * 被更新的值覆盖而未发送的消息数
+     */
+    public long getConflated() {
+        return published.get() - delivered.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.execute(this::flush);
+        flusher.shutdown();
+    }
+
+    private static final class Slot {
+
+        private final String key;
+
+        private final String topic;
+
+        /**
+         * 待发送的最新值，null表示没有待发的值，RETIRED表示已退役
+         */
+        private final AtomicReference<Object> latest = new AtomicReference<>();
+
+        private Slot(String key, String topic) {
+            this.key = key;
+            this.topic = topic;
+        }
+    }
+}
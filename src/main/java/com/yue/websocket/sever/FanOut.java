@@ -0,0 +1,39 @@
+package com.yue.websocket.sever;
+
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @ProjectName: spring-boot-websocket
+ * @Package: com.yue.websocket.sever
+ * @ClassName: FanOut
+ * @Author: YUE
+ * @Description: 一次群发的耗时统计：从提交到最后一个接收者写完(或被丢弃)
+ * 计数初始为1，由发起方在提交完所有分片任务后释放，避免分片任务未开始时提前归零
+ * @Date: 2026/10/17 22:00
+ * @Version: 1.0
+ */
+final class FanOut {
+
+    private final long start = System.nanoTime();
+
+    private final AtomicInteger pending = new AtomicInteger(1);
+
+    private final Timer timer;
+
+    FanOut(Timer timer) {
+        this.timer = timer;
+    }
+
+    void acquire() {
+        pending.incrementAndGet();
+    }
+
+    void release() {
+        if (pending.decrementAndGet() == 0) {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.yue.websocket.sever;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.yue.websocket.common.utils.TokenBucket;
+import com.yue.websocket.config.WebSocketProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @ProjectName: spring-boot-websocket
+ * @Package: com.yue.websocket.sever
+ * @ClassName: HandshakeAdmission
+ * @Author: YUE
+ * @Description: 握手准入：全局连接数上限，按IP和按连接参数的令牌桶限流
+ * 在握手升级之前检查，被拒绝的请求不进入WebSocket容器，也不触碰会话注册表
+ * @Date: 2026/10/17 23:15
+ * @Version: 1.0
+ */
+@Component
+public class HandshakeAdmission {
+
+    /**
+     * 拒绝原因
+     */
+    public enum Rejection {
+        /**
+         * 在线连接数达到上限
+         */
+        SESSIONS,
+        /**
+         * 同一IP握手过于频繁
+         */
+        IP,
+        /**
+         * 同一连接参数(门店)握手过于频繁
+         */
+        PARAM
+    }
+
+    private final WebSocketProperties.Admission admission;
+
+    private final SessionRegistry registry;
+
+    private final WebSocketMetrics metrics;
+
+    private final Cache<String, TokenBucket> ipBuckets;
+
+    private final Cache<String, TokenBucket> paramBuckets;
+
+    public HandshakeAdmission(WebSocketProperties properties, SessionRegistry registry, WebSocketMetrics metrics) {
+        this.admission = properties.getAdmission();
+        this.registry = registry;
+        this.metrics = metrics;
+        this.ipBuckets = newBuckets();
+        this.paramBuckets = newBuckets();
+    }
+
+    public boolean isEnabled() {
+        return admission.isEnabled();
+    }
+
+    /**
+     * 判断是否允许握手，按开销从小到大依次检查
+     *
+     * @param ip:    客户端IP
+     * @param param: 连接路径上的参数，可以为空
+     * @return: 允许时返回null，否则返回拒绝原因
+     */
+    public Rejection admit(String ip, String param) {
+        Rejection rejection = check(ip, param);
+        if (rejection != null) {
+            metrics.rejected(rejection.name().toLowerCase());
+        }
+        return rejection;
+    }
+
+    private Rejection check(String ip, String param) {
+        if (admission.getMaxSessions() > 0 && registry.size() >= admission.getMaxSessions()) {
+            return Rejection.SESSIONS;
+        }
+        if (ip != null && !ipBuckets.get(ip, k -> new TokenBucket(admission.getIpPermitsPerSecond(),
+                admission.getIpBurst())).tryAcquire()) {
+            return Rejection.IP;
+        }
+        String topic = WebSocketServer.resolveTopic(param);
+        if (topic != null && !paramBuckets.get(topic, k -> new TokenBucket(admission.getParamPermitsPerSecond(),
+                admission.getParamBurst())).tryAcquire()) {
+            return Rejection.PARAM;
+        }
+        return null;
+    }
+
+    private Cache<String, TokenBucket> newBuckets() {
+        return Caffeine.newBuilder()
+                .maximumSize(admission.getTrackedKeys())
+                .expireAfterAccess(1, TimeUnit.MINUTES)
+                .build();
+    }
+}
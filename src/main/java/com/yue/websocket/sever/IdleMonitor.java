@@ -0,0 +1,249 @@
+package com.yue.websocket.sever;
+
+import com.yue.websocket.common.utils.ThreadUtils;
+import com.yue.websocket.config.WebSocketProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.websocket.CloseReason;
+import javax.websocket.Session;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @ProjectName: spring-boot-websocket
+ * @Package: com.yue.websocket.sever
+ * @ClassName: IdleMonitor
+ * @Author: YUE
+ * @Description: 基于时间轮的心跳检测，所有会话共用一个时间轮线程
+ * 每个会话在时间轮上只有一个条目，收到消息只更新最后活跃时间，到期时才检查：
+ * 期间有活动则按最后活跃时间重新挂到时间轮；空闲超时先发ping，pong超时仍无响应则关闭连接
+ * 每个tick只处理到期的条目，已关闭的会话在到期时顺带移除
+ * @Date: 2026/10/17 22:40
+ * @Version: 1.0
+ */
+@Slf4j
+@Component
+public class IdleMonitor {
+
+    private static final ByteBuffer PING = ByteBuffer.allocate(0);
+
+    private final WebSocketProperties.Heartbeat heartbeat;
+
+    private final WebSocketMetrics metrics;
+
+    private final long tickNanos;
+
+    private final long idleNanos;
+
+    private final long pongNanos;
+
+    private final int mask;
+
+    /**
+     * 时间轮的槽，只由时间轮线程访问
+     */
+    private final ArrayDeque<Entry>[] wheel;
+
+    /**
+     * 新加入的会话，由时间轮线程在下一个tick挂到时间轮上
+     */
+    private final Queue<Entry> added = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 发ping和关闭连接可能阻塞在写上，交给单独的线程，不拖慢时间轮；队列满时拒绝，由时间轮在下一个tick重试
+     */
+    private final ExecutorService io;
+
+    private final long startNanos = System.nanoTime();
+
+    private long tick;
+
+    private volatile boolean running = true;
+
+    private Thread worker;
+
+    public IdleMonitor(WebSocketProperties properties) {
+        this(properties, WebSocketMetrics.noop());
+    }
+
+    @Autowired
+    public IdleMonitor(WebSocketProperties properties, WebSocketMetrics metrics) {
+        this(properties, metrics, new ThreadPoolExecutor(1, 2, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(10000),
+                ThreadUtils.newThreadFactory("ws-heartbeat-io-", false)));
+    }
+
+    @SuppressWarnings("unchecked")
+    IdleMonitor(WebSocketProperties properties, WebSocketMetrics metrics, ExecutorService io) {
+        this.heartbeat = properties.getHeartbeat();
+        this.metrics = metrics;
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, heartbeat.getTickMillis()));
+        this.idleNanos = TimeUnit.MILLISECONDS.toNanos(heartbeat.getIdleTimeoutMillis());
+        this.pongNanos = TimeUnit.MILLISECONDS.toNanos(heartbeat.getPongTimeoutMillis());
+        int size = Integer.highestOneBit(Math.max(2, heartbeat.getWheelSize() - 1)) << 1;
+        this.mask = size - 1;
+        this.wheel = new ArrayDeque[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new ArrayDeque<>();
+        }
+        this.io = io;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (heartbeat.isEnabled()) {
+            worker = ThreadUtils.newThreadFactory("ws-heartbeat-", false).newThread(this::run);
+            worker.start();
+        }
+    }
+
+    /**
+     * 开始检测会话，会话关闭后无需移除
+     *
+     * @param sender: 会话
+     */
+    public void watch(SessionSender sender) {
+        if (!heartbeat.isEnabled()) {
+            return;
+        }
+        sender.touch();
+        added.offer(new Entry(sender, System.nanoTime() + idleNanos));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+        }
+        io.shutdown();
+    }
+
+    private void run() {
+        while (running) {
+            long deadline = startNanos + (tick + 1) * tickNanos;
+            long sleep = deadline - System.nanoTime();
+            if (sleep > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleep);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            tick++;
+            Entry entry;
+            while ((entry = added.poll()) != null) {
+                schedule(entry);
+            }
+            try {
+                expire(wheel[(int) (tick & mask)], System.nanoTime());
+            } catch (Exception e) {
+                log.error("心跳检测异常：{}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 处理当前槽里的条目，只处理进入本tick时已有的条目，重新挂回同一槽的条目留到下一圈
+     */
+    private void expire(ArrayDeque<Entry> bucket, long now) {
+        for (int n = bucket.size(); n > 0; n--) {
+            Entry entry = bucket.pollFirst();
+            if (entry.rounds > 0) {
+                entry.rounds--;
+                bucket.offerLast(entry);
+                continue;
+            }
+            SessionSender sender = entry.sender;
+            Session session = sender.getSession();
+            if (sender.isClosed() || !session.isOpen()) {
+                continue;
+            }
+            long idleDeadline = sender.getLastSeen() + idleNanos;
+            if (now - idleDeadline < 0) {
+                entry.pinged = false;
+                entry.deadline = idleDeadline;
+                schedule(entry);
+            } else if (!entry.pinged) {
+                if (submit(() -> ping(session))) {
+                    entry.pinged = true;
+                    entry.deadline = now + pongNanos;
+                } else {
+                    entry.deadline = now;
+                }
+                schedule(entry);
+            } else if (submit(() -> close(session))) {
+                metrics.idleClosed();
+            } else {
+                entry.deadline = now;
+                schedule(entry);
+            }
+        }
+    }
+
+    /**
+     * 提交到io线程，被拒绝时返回false，条目挂到下一个槽重试，不能丢掉，否则会话再也不会被检测
+     */
+    private boolean submit(Runnable task) {
+        try {
+            io.execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            log.debug("心跳io队列已满，下一个tick重试");
+            return false;
+        }
+    }
+
+    private void schedule(Entry entry) {
+        long ticks = Math.max((entry.deadline - startNanos + tickNanos - 1) / tickNanos, tick + 1);
+        entry.rounds = (ticks - tick - 1) / wheel.length;
+        wheel[(int) (ticks & mask)].offerLast(entry);
+    }
+
+    private void ping(Session session) {
+        try {
+            session.getAsyncRemote().sendPing(PING.duplicate());
+        } catch (Exception e) {
+            log.debug("客户端[{}]发送ping失败：{}", session.getId(), e.getMessage());
+        }
+    }
+
+    private void close(Session session) {
+        log.info("客户端[{}]心跳超时，关闭连接", session.getId());
+        try {
+            session.close(new CloseReason(CloseReason.CloseCodes.GOING_AWAY, "idle timeout"));
+        } catch (Exception e) {
+            log.warn("关闭心跳超时连接[{}]异常：{}", session.getId(), e.getMessage());
+        }
+    }
+
+    private static final class Entry {
+
+        private final SessionSender sender;
+
+        private long deadline;
+
+        private long rounds;
+
+        /**
+         * 空闲后是否已发过ping
+         */
+        private boolean pinged;
+
+        private Entry(SessionSender sender, long deadline) {
+            this.sender = sender;
+            this.deadline = deadline;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.yue.websocket.sever;
+
+import com.yue.websocket.common.utils.ThreadUtils;
+import com.yue.websocket.config.WebSocketProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @ProjectName: spring-boot-websocket
+ * @Package: com.yue.websocket.sever
+ * @ClassName: InboundDispatcher
+ * @Author: YUE
+ * @Description: 客户端消息的异步处理：onMessage只负责入队，业务处理交给工作线程，不占用容器的I/O线程
+ * 每个会话一个串行队列，同一会话的消息按到达顺序处理，不同会话之间并行
+ * 全局排队数和单个会话排队数都有上限，超出时由调用方按拒绝策略处理
+ * @Date: 2026/10/18 0:10
+ * @Version: 1.0
+ */
+@Slf4j
+@Component
+public class InboundDispatcher {
+
+    /**
+     * 一个会话连续处理的最大条数，超过后让出线程，避免繁忙会话长期占用工作线程
+     */
+    private static final int BATCH = 16;
+
+    private final WebSocketProperties.Dispatch dispatch;
+
+    private final ExecutorService executor;
+
+    private final Map<String, SerialQueue> queues = new ConcurrentHashMap<>();
+
+    /**
+     * 所有会话已入队未处理完的消息数
+     */
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public InboundDispatcher(WebSocketProperties properties) {
+        this(properties, WebSocketMetrics.noop());
+    }
+
+    @Autowired
+    public InboundDispatcher(WebSocketProperties properties, WebSocketMetrics metrics) {
+        this.dispatch = properties.getDispatch();
+        // 排队数已由maxInFlight限制，虚拟线程不需要池化，每条消息一个虚拟线程
+        ExecutorService virtual = dispatch.isEnabled() && dispatch.isVirtualThreads()
+                ? ThreadUtils.newVirtualThreadPerTaskExecutor("ws-inbound-") : null;
+        if (!dispatch.isEnabled()) {
+            this.executor = null;
+        } else if (virtual != null) {
+            this.executor = virtual;
+        } else {
+            int workers = dispatch.getWorkers() > 0 ? dispatch.getWorkers() : Runtime.getRuntime().availableProcessors() * 2;
+            this.executor = Executors.newFixedThreadPool(workers,
+                    ThreadUtils.newThreadFactory("ws-inbound-", dispatch.isVirtualThreads()));
+        }
+        metrics.bind(this);
+    }
+
+    public boolean isEnabled() {
+        return executor != null;
+    }
+
+    /**
+     * 提交会话的一条消息处理，未开启时在当前线程直接执行
+     *
+     * @param sessionId: 会话ID
+     * @param task:      消息处理
+     * @return: 超过全局或会话排队上限时返回false，任务未执行
+     */
+    public boolean dispatch(String sessionId, Runnable task) {
+        if (executor == null) {
+            task.run();
+            return true;
+        }
+        if (inFlight.incrementAndGet() > dispatch.getMaxInFlight()) {
+            inFlight.decrementAndGet();
+            return false;
+        }
+        SerialQueue queue = queues.computeIfAbsent(sessionId, k -> new SerialQueue());
+        if (!queue.submit(task)) {
+            inFlight.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 会话关闭后移除其队列，已入队的消息仍会处理完
+     */
+    public void remove(String sessionId) {
+        if (executor != null) {
+            queues.remove(sessionId);
+        }
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * 单个会话的串行队列：size从0变为1的提交者负责把队列交给线程池，处理者在size归零时退出
+     */
+    private final class SerialQueue implements Runnable {
+
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+        private final AtomicInteger size = new AtomicInteger();
+
+        private boolean submit(Runnable task) {
+            if (size.get() >= dispatch.getMaxQueuedPerSession()) {
+                return false;
+            }
+            tasks.offer(task);
+            if (size.getAndIncrement() == 0) {
+                schedule();
+            }
+            return true;
+        }
+
+        @Override
+        public void run() {
+            for (int n = 1; ; n++) {
+                Runnable task = tasks.poll();
+                try {
+                    task.run();
+                } catch (Exception e) {
+                    log.error("处理客户端消息异常：{}", e.getMessage());
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+                if (size.decrementAndGet() == 0) {
+                    return;
+                }
+                if (n >= BATCH) {
+                    schedule();
+                    return;
+                }
+            }
+        }
+
+        private void schedule() {
+            try {
+                executor.execute(this);
+            } catch (RejectedExecutionException e) {
+                // 关闭中，丢弃剩余消息
+                int dropped = size.getAndSet(0);
+                tasks.clear();
+                inFlight.addAndGet(-dropped);
+            }
+        }
+    }
+}
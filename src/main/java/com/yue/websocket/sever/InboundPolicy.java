@@ -0,0 +1,21 @@
+package com.yue.websocket.sever;
+
+/**
+ * @ProjectName: spring-boot-websocket
+ * @Package: com.yue.websocket.sever
+ * @ClassName: InboundPolicy
+ * @Author: YUE
+ * @Description: 客户端发送消息超过限流时的处理策略
+ * @Date: 2026/10/17 23:40
+ * @Version: 1.0
+ */
+public enum InboundPolicy {
+    /**
+     * 丢弃超出的消息，连接保持
+     */
+    DROP,
+    /**
+     * 以1008(VIOLATED_POLICY)关闭连接
+     */
+    CLOSE
+}
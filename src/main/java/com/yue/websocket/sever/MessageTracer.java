@@ -0,0 +1,130 @@
+package com.yue.websocket.sever;
+
+import com.yue.websocket.common.utils.ThreadUtils;
+import com.yue.websocket.config.WebSocketProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @ProjectName: spring-boot-websocket
+ * @Package: com.yue.websocket.sever
+ * @ClassName: MessageTracer
+ * @Author: YUE
+ * @Description: 消息跟踪，运行时按会话或主题开启，采样后异步写日志；未开启时发送路径上只有一次volatile读
+ * @Date: 2026/10/17 11:20
+ * @Version: 1.0
+ */
+@Component
+public class MessageTracer {
+
+    private static final Logger logger = LoggerFactory.getLogger("com.yue.websocket.trace");
+
+    private final Set<String> sessions = ConcurrentHashMap.newKeySet();
+
+    private final Set<String> topics = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong counter = new AtomicLong();
+
+    private final int sampleRate;
+
+    /**
+     * 单线程写日志，队列满时直接丢弃，不阻塞发送线程
+     */
+    private final ThreadPoolExecutor executor;
+
+    private volatile boolean active;
+
+    public MessageTracer(WebSocketProperties properties) {
+        this.sampleRate = Math.max(1, properties.getTrace().getSampleRate());
+        this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(properties.getTrace().getQueueCapacity()),
+                ThreadUtils.newThreadFactory("ws-trace-", false), new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    /**
+     * 是否有任何会话或主题开启了跟踪，调用方先判断再调用trace方法
+     */
+    public boolean isActive() {
+        return active;
+    }
+
+    public void traceSession(String sessionId, boolean enabled) {
+        if (enabled) {
+            sessions.add(sessionId);
+        } else {
+            sessions.remove(sessionId);
+        }
+        refresh();
+    }
+
+    public void traceTopic(String topic, boolean enabled) {
+        if (enabled) {
+            topics.add(topic);
+        } else {
+            topics.remove(topic);
+        }
+        refresh();
+    }
+
+    /**
+     * 会话关闭时移除跟踪设置
+     */
+    public void remove(String sessionId) {
+        if (sessions.remove(sessionId)) {
+            refresh();
+        }
+    }
+
+    public Set<String> getSessions() {
+        return sessions;
+    }
+
+    public Set<String> getTopics() {
+        return topics;
+    }
+
+    /**
+     * 跟踪收到的消息
+     */
+    public void inbound(String sessionId, String message) {
+        if (sessions.contains(sessionId) && sampled()) {
+            executor.execute(() -> logger.info("服务端收到客户端[{}]的消息:{}", sessionId, message));
+        }
+    }
+
+    /**
+     * 跟踪发出的消息
+     *
+     * @param sessionId: 接收者
+     * @param topic:     主题，群发时为null
+     * @param message:   消息载体
+     */
+    public void outbound(String sessionId, String topic, OutboundMessage message) {
+        boolean matched = sessions.contains(sessionId) || (topic != null && topics.contains(topic));
+        if (matched && sampled()) {
+            executor.execute(() -> logger.info("服务端给客户端[{}]发送消息{}，主题：{}", sessionId, message.getText(), topic));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private boolean sampled() {
+        return sampleRate == 1 || counter.incrementAndGet() % sampleRate == 0;
+    }
+
+    private void refresh() {
+        active = !sessions.isEmpty() || !topics.isEmpty();
+    }
+}
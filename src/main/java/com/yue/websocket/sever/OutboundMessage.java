@@ -0,0 +1,143 @@
+package com.yue.websocket.sever;
+
+import com.yue.websocket.sever.codec.MessageCodec;
+
+import javax.websocket.SendHandler;
+import javax.websocket.Session;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * @ProjectName: spring-boot-websocket
+ * @Package: com.yue.websocket.sever
+ * @ClassName: OutboundMessage
+ * @Author: YUE
+ * @Description: 群发消息载体，一条消息只构建一次，所有接收者共享同一份内容
+ * @Date: 2026/10/17 9:10
+ * @Version: 1.0
+ */
+public final class OutboundMessage {
+
+    /**
+     * 文本内容，所有会话共享同一个String实例
+     */
+    private final String text;
+
+    /**
+     * UTF-8编码后的只读帧数据，首次使用时编码一次
+     */
+    private volatile ByteBuffer frame;
+
+    /**
+     * 二进制编码结果，一般只有一种二进制编解码，按编解码实例缓存最近一次的结果
+     */
+    private volatile Encoded encoded;
+
+    /**
+     * 群发耗时统计，每个接收者写完或丢弃这条消息时释放一次
+     */
+    private volatile FanOut fanOut;
+
+    private OutboundMessage(String text) {
+        this.text = text;
+    }
+
+    public static OutboundMessage of(String text) {
+        return new OutboundMessage(text == null ? "" : text);
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * 获取编码后的帧数据
+     * 返回的是共享缓冲区的duplicate视图，只复制position/limit，不复制底层字节
+     *
+     * @return: java.nio.ByteBuffer
+     */
+    public ByteBuffer getFrame() {
+        ByteBuffer encoded = frame;
+        if (encoded == null) {
+            encoded = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)).asReadOnlyBuffer();
+            frame = encoded;
+        }
+        return encoded.duplicate();
+    }
+
+    /**
+     * 编码后的字节长度
+     */
+    public int getByteLength() {
+        return getFrame().remaining();
+    }
+
+    /**
+     * 获取指定编解码的帧数据，同一条消息对同一种编解码只编码一次
+     *
+     * @param codec: 编解码
+     * @return: java.nio.ByteBuffer
+     */
+    public ByteBuffer getFrame(MessageCodec codec) {
+        if (!codec.isBinary()) {
+            return getFrame();
+        }
+        Encoded current = encoded;
+        if (current == null || current.codec != codec) {
+            current = new Encoded(codec, codec.encode(text).asReadOnlyBuffer());
+            encoded = current;
+        }
+        return current.frame.duplicate();
+    }
+
+    /**
+     * 以文本帧异步发送给指定会话
+     *
+     * @param session: 接收者
+     * @param handler: 发送完成回调，建议复用同一个实例
+     */
+    public void sendTo(Session session, SendHandler handler) {
+        session.getAsyncRemote().sendText(text, handler);
+    }
+
+    /**
+     * 按会话协商的编解码异步发送，二进制编解码以二进制帧发送
+     *
+     * @param session: 接收者
+     * @param codec:   编解码
+     * @param handler: 发送完成回调，建议复用同一个实例
+     */
+    public void sendTo(Session session, MessageCodec codec, SendHandler handler) {
+        if (codec == null || !codec.isBinary()) {
+            sendTo(session, handler);
+        } else {
+            session.getAsyncRemote().sendBinary(getFrame(codec), handler);
+        }
+    }
+
+    void track(FanOut fanOut) {
+        this.fanOut = fanOut;
+    }
+
+    /**
+     * 某个接收者已写完或丢弃这条消息
+     */
+    void complete() {
+        FanOut tracked = fanOut;
+        if (tracked != null) {
+            tracked.release();
+        }
+    }
+
+    private static final class Encoded {
+
+        private final MessageCodec codec;
+
+        private final ByteBuffer frame;
+
+        private Encoded(MessageCodec codec, ByteBuffer frame) {
+            this.codec = codec;
+            this.frame = frame;
+        }
+    }
+}
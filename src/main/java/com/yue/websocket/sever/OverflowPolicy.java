@@ -0,0 +1,25 @@
+package com.yue.websocket.sever;
+
+/**
+ * @ProjectName: spring-boot-websocket
+ * @Package: com.yue.websocket.sever
+ * @ClassName: OverflowPolicy
+ * @Author: YUE
+ * @Description: 会话发送队列满时的处理策略
+ * @Date: 2026/10/17 9:40
+ * @Version: 1.0
+ */
+public enum OverflowPolicy {
+    /**
+     * 丢弃队列中最早的消息
+     */
+    DROP_OLDEST,
+    /**
+     * 清空队列，只保留最新的消息
+     */
+    COALESCE,
+    /**
+     * 以1008(VIOLATED_POLICY)关闭连接
+     */
+    CLOSE
+}
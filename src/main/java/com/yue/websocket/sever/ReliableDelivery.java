@@ -0,0 +1,365 @@
+package com.yue.websocket.sever;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONException;
+import com.alibaba.fastjson.JSONObject;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.yue.websocket.cluster.ClusterBus;
+import com.yue.websocket.common.utils.ThreadUtils;
+import com.yue.websocket.config.WebSocketProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @ProjectName: spring-boot-websocket
+ * @Package: com.yue.websocket.sever
+ * @ClassName: ReliableDelivery
+ * @Author: YUE
+ * @Description: 可靠投递(至少一次)：按主题编号并保留最近的消息，客户端断线重连后从上次确认的位置补发
+ * 消息帧：{"type":"msg","topic":"8","epoch":"e1","seq":12,"data":...}
+ * 客户端确认：{"action":"ack","topic":"8","seq":12}，确认位置按连接参数里的clientId记录，没有clientId时不记录
+ * 恢复：连接参数带{"storeId":"8","clientId":"c1","epoch":"e1","seq":12}，没带seq时按该clientId最后确认的位置补发；
+ * 订阅其他主题时用{"action":"resume","topic":"9","epoch":"e1","seq":12}代替subscribe
+ * 订阅与补发在主题缓冲区锁内完成，补发的消息一定排在之后的实时消息前面
+ * 编号只在本节点内有效(epoch为本节点启动时生成)，epoch不一致或补发范围已不在缓冲区时发送
+ * {"type":"reset","topic":"8","epoch":"e2","seq":30}，客户端需重新加载数据；客户端按seq去重
+ * 缓冲区满后被挤出的消息可选写入Redis Stream，补发时先从Stream读取
+ * @Date: 2026/10/18 1:10
+ * @Version: 1.0
+ */
+@Slf4j
+@Component
+public class ReliableDelivery {
+
+    private final SessionRegistry registry;
+
+    private final ClusterBus clusterBus;
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    private final WebSocketProperties.Reliable reliable;
+
+    /**
+     * 本节点的编号纪元，重启后变化
+     */
+    private final String epoch = UUID.randomUUID().toString().replace("-", "").substring(0, 8);
+
+    private final Map<String, Ring> rings = new ConcurrentHashMap<>();
+
+    /**
+     * clientId+主题 -> 客户端最后确认的编号
+     */
+    private final Cache<String, Long> acks;
+
+    /**
+     * 写Redis Stream的线程，保证同一主题按编号顺序写入
+     */
+    private final ExecutorService overflowWriter;
+
+    public ReliableDelivery(SessionRegistry registry, ClusterBus clusterBus, StringRedisTemplate stringRedisTemplate,
+                            WebSocketProperties properties) {
+        this.registry = registry;
+        this.clusterBus = clusterBus;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.reliable = properties.getReliable();
+        this.acks = Caffeine.newBuilder()
+                .maximumSize(reliable.getAckCacheSize())
+                .expireAfterAccess(1, TimeUnit.DAYS)
+                .build();
+        this.overflowWriter = reliable.isStreamEnabled()
+                ? new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(100000),
+                ThreadUtils.newThreadFactory("ws-reliable-", false), new ThreadPoolExecutor.DiscardPolicy())
+                : null;
+        clusterBus.setReliableListener(this::deliver);
+    }
+
+    public String getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * 可靠投递到主题，集群模式下各节点分别编号后投递给本地会话
+     *
+     * @param topic:   主题，不能为空
+     * @param message: 消息内容，JSON文本或普通字符串
+     * @return: 本节点分配的编号
+     */
+    public long publish(String topic, String message) {
+        long seq = deliver(topic, message);
+        clusterBus.forward(topic, message, true);
+        return seq;
+    }
+
+    /**
+     * 编号、放入缓冲区并投递给本地订阅者
+     */
+    long deliver(String topic, String message) {
+        Ring ring = rings.computeIfAbsent(topic, t -> new Ring(reliable.getRingCapacity()));
+        synchronized (ring) {
+            long seq = ring.last + 1;
+            String text = frame(topic, seq, message);
+            String evicted = ring.add(seq, text);
+            if (evicted != null && overflowWriter != null) {
+                long evictedSeq = seq - ring.entries.length;
+                overflowWriter.execute(() -> overflow(topic, evictedSeq, evicted));
+            }
+            // 在锁内投递，保证与补发之间按编号顺序进入会话发送队列
+            registry.publish(topic, OutboundMessage.of(text));
+            return seq;
+        }
+    }
+
+    /**
+     * 记录客户端确认的位置，重连时没带编号则从这里补发
+     *
+     * @param clientId: 客户端ID，同一连接参数(门店)下的多个客户端各自独立，为空时忽略
+     * @param topic:    主题
+     * @param seq:      已处理的最大编号
+     */
+    public void ack(String clientId, String topic, long seq) {
+        if (StringUtils.isEmpty(clientId)) {
+            return;
+        }
+        String key = ackKey(clientId, topic);
+        Long previous = acks.getIfPresent(key);
+        if (previous == null || seq > previous) {
+            acks.put(key, seq);
+        }
+    }
+
+    /**
+     * 连接建立后订阅连接参数对应的主题，并按连接参数或最后确认的位置补发
+     *
+     * @param sender:       会话
+     * @param param:        连接参数
+     * @param topic:        连接参数对应的主题，为null时不订阅
+     * @param subscription: 订阅动作，需要补发时在主题缓冲区锁内执行
+     */
+    public void onOpen(SessionSender sender, String param, String topic, Runnable subscription) {
+        if (topic == null) {
+            return;
+        }
+        String resumeEpoch = epoch;
+        Long seq = null;
+        String clientId = null;
+        if (param != null && param.startsWith("{")) {
+            try {
+                JSONObject json = JSON.parseObject(param);
+                clientId = json.getString("clientId");
+                if (json.containsKey("seq")) {
+                    seq = json.getLong("seq");
+                    resumeEpoch = json.getString("epoch");
+                }
+            } catch (JSONException e) {
+                // 普通参数，不补发
+            }
+        }
+        if (seq == null && clientId != null) {
+            seq = acks.getIfPresent(ackKey(clientId, topic));
+        }
+        if (seq == null) {
+            subscription.run();
+        } else {
+            resume(sender, topic, resumeEpoch, seq, subscription);
+        }
+    }
+
+    /**
+     * 订阅并从指定编号之后补发，订阅在缓冲区锁内执行，之后的实时消息一定排在补发消息后面
+     *
+     * @param sender:       会话
+     * @param topic:        主题
+     * @param clientEpoch:  客户端收到的纪元
+     * @param seq:          客户端已收到的最大编号
+     * @param subscription: 订阅动作
+     */
+    public void resume(SessionSender sender, String topic, String clientEpoch, long seq, Runnable subscription) {
+        Ring ring = rings.computeIfAbsent(topic, t -> new Ring(reliable.getRingCapacity()));
+        // Redis读取在锁外进行，拿到锁后再衔接缓冲区；期间新到的消息仍在缓冲区内，随后一并补发
+        List<OutboundMessage> fromStream = Collections.emptyList();
+        long streamLast = seq;
+        if (overflowWriter != null && epoch.equals(clientEpoch) && seq + 1 < ring.oldest()) {
+            fromStream = readStream(topic, seq + 1, ring.oldest() - 1);
+            streamLast = seq + fromStream.size();
+        }
+        synchronized (ring) {
+            subscription.run();
+            if (!epoch.equals(clientEpoch) || (seq < ring.last && streamLast + 1 < ring.oldest())) {
+                sendReset(sender, topic, ring);
+                return;
+            }
+            for (OutboundMessage message : fromStream) {
+                sender.send(message);
+            }
+            for (long s = streamLast + 1; s <= ring.last; s++) {
+                // 缓冲区只存文本，补发用新的消息实例，不带群发时的耗时统计
+                sender.send(OutboundMessage.of(ring.get(s)));
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (overflowWriter != null) {
+            overflowWriter.shutdown();
+        }
+    }
+
+    private void sendReset(SessionSender sender, String topic, Ring ring) {
+        JSONObject reset = new JSONObject(true);
+        reset.put("type", "reset");
+        reset.put("topic", topic);
+        reset.put("epoch", epoch);
+        reset.put("seq", ring.last);
+        sender.send(OutboundMessage.of(reset.toJSONString()));
+    }
+
+    private String frame(String topic, long seq, String message) {
+        JSONObject frame = new JSONObject(true);
+        frame.put("type", "msg");
+        frame.put("topic", topic);
+        frame.put("epoch", epoch);
+        frame.put("seq", seq);
+        Object data = message;
+        if (message.startsWith("{") || message.startsWith("[")) {
+            try {
+                data = JSON.parse(message);
+            } catch (JSONException e) {
+                data = message;
+            }
+        }
+        frame.put("data", data);
+        return frame.toJSONString();
+    }
+
+    private String streamKey(String topic) {
+        return reliable.getStreamKeyPrefix() + topic + ":" + epoch;
+    }
+
+    private static String ackKey(String clientId, String topic) {
+        return clientId + '\u0000' + topic;
+    }
+
+    /**
+     * 从连接参数中取出clientId，普通参数返回null
+     */
+    public static String resolveClientId(String param) {
+        if (param == null || !param.startsWith("{")) {
+            return null;
+        }
+        try {
+            return JSON.parseObject(param).getString("clientId");
+        } catch (JSONException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 被挤出缓冲区的消息写入Redis Stream，以编号作为消息ID
+     */
+    private void overflow(String topic, long seq, String message) {
+        String key = streamKey(topic);
+        try {
+            stringRedisTemplate.opsForStream().add(StreamRecords.newRecord()
+                    .in(key)
+                    .withId(RecordId.of(seq, 0))
+                    .ofMap(Collections.singletonMap("m", message)));
+            if (seq % 1000 == 0) {
+                stringRedisTemplate.opsForStream().trim(key, reliable.getStreamMaxLen());
+                stringRedisTemplate.expire(key, reliable.getStreamTtlSeconds(), TimeUnit.SECONDS);
+            }
+        } catch (Exception e) {
+            log.error("可靠投递消息写入Redis Stream[{}]异常：{}", key, e.getMessage());
+        }
+    }
+
+    /**
+     * 读取Stream中连续的一段，遇到缺失即停止
+     */
+    private List<OutboundMessage> readStream(String topic, long from, long to) {
+        List<OutboundMessage> result = new ArrayList<>();
+        try {
+            List<MapRecord<String, Object, Object>> records = stringRedisTemplate.opsForStream()
+                    .range(streamKey(topic), Range.closed(from + "-0", to + "-0"));
+            long expected = from;
+            for (MapRecord<String, Object, Object> record : records) {
+                if (record.getId().getTimestamp() != expected) {
+                    break;
+                }
+                result.add(OutboundMessage.of(String.valueOf(record.getValue().get("m"))));
+                expected++;
+            }
+        } catch (Exception e) {
+            log.error("读取Redis Stream[{}]异常：{}", streamKey(topic), e.getMessage());
+        }
+        return result;
+    }
+
+    /**
+     * 单个主题的环形缓冲区，保存编号后的帧文本，编号连续，按编号取模定位；数组按需扩容到上限，受this锁保护
+     * 数组满后被挤出的编号为seq-entries.length
+     */
+    private static final class Ring {
+
+        private final int capacity;
+
+        private String[] entries;
+
+        private long last;
+
+        private Ring(int capacity) {
+            this.capacity = Math.max(1, capacity);
+            this.entries = new String[Math.min(16, this.capacity)];
+        }
+
+        /**
+         * 追加一条消息
+         *
+         * @return: 被挤出缓冲区的消息，没有时返回null
+         */
+        private String add(long seq, String message) {
+            if (seq - oldest() >= entries.length && entries.length < capacity) {
+                String[] grown = new String[Math.min(entries.length * 2, capacity)];
+                for (long s = oldest(); s <= last; s++) {
+                    grown[(int) (s % grown.length)] = get(s);
+                }
+                entries = grown;
+            }
+            int index = (int) (seq % entries.length);
+            String evicted = seq > entries.length ? entries[index] : null;
+            entries[index] = message;
+            last = seq;
+            return evicted;
+        }
+
+        private String get(long seq) {
+            return entries[(int) (seq % entries.length)];
+        }
+
+        /**
+         * 缓冲区中最早的编号
+         */
+        private synchronized long oldest() {
+            return Math.max(1, last - entries.length + 1);
+        }
+    }
+}
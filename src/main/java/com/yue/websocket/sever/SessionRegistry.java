@@ -0,0 +1,229 @@
+package com.yue.websocket.sever;
+
+import com.yue.websocket.common.utils.ThreadUtils;
+import com.yue.websocket.config.WebSocketProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * @ProjectName: spring-boot-websocket
+ * @Package: com.yue.websocket.sever
+ * @ClassName: SessionRegistry
+ * @Author: YUE
+ * @Description: 分片的在线会话注册表，每个分片由独立的工作线程负责群发，调用方提交后立即返回
+ * @Date: 2026/10/17 10:30
+ * @Version: 1.0
+ */
+@Slf4j
+@Component
+public class SessionRegistry {
+
+    private final Shard[] shards;
+
+    private final MessageTracer tracer;
+
+    private final WebSocketMetrics metrics;
+
+    public SessionRegistry(WebSocketProperties properties, MessageTracer tracer) {
+        this(properties, tracer, WebSocketMetrics.noop());
+    }
+
+    @Autowired
+    public SessionRegistry(WebSocketProperties properties, MessageTracer tracer, WebSocketMetrics metrics) {
+        this.tracer = tracer;
+        this.metrics = metrics;
+        WebSocketProperties.Broadcast broadcast = properties.getBroadcast();
+        int count = broadcast.getShards() > 0 ? broadcast.getShards() : Runtime.getRuntime().availableProcessors();
+        ThreadFactory threadFactory = ThreadUtils.newThreadFactory("ws-broadcast-", broadcast.isVirtualThreads());
+        this.shards = new Shard[count];
+        for (int i = 0; i < count; i++) {
+            shards[i] = new Shard(Executors.newSingleThreadExecutor(threadFactory));
+        }
+        metrics.bind(this);
+    }
+
+    public void register(SessionSender sender) {
+        shardOf(sender.getId()).sessions.put(sender.getId(), sender);
+    }
+
+    public SessionSender unregister(String sessionId) {
+        Shard shard = shardOf(sessionId);
+        SessionSender sender = shard.sessions.remove(sessionId);
+        if (sender != null) {
+            for (String topic : sender.getTopics()) {
+                shard.leave(topic, sender);
+            }
+            sender.getTopics().clear();
+        }
+        return sender;
+    }
+
+    /**
+     * 订阅主题，会话只加入自己所在分片的主题索引
+     *
+     * @param sender: 会话
+     * @param topic:  主题
+     */
+    public void subscribe(SessionSender sender, String topic) {
+        if (topic == null || !sender.getTopics().add(topic)) {
+            return;
+        }
+        shardOf(sender.getId()).join(topic, sender);
+    }
+
+    public void unsubscribe(SessionSender sender, String topic) {
+        if (topic != null && sender.getTopics().remove(topic)) {
+            shardOf(sender.getId()).leave(topic, sender);
+        }
+    }
+
+    public SessionSender get(String sessionId) {
+        return shardOf(sessionId).sessions.get(sessionId);
+    }
+
+    public int size() {
+        int size = 0;
+        for (Shard shard : shards) {
+            size += shard.sessions.size();
+        }
+        return size;
+    }
+
+    /**
+     * 所有在线会话的快照
+     */
+    public List<SessionSender> senders() {
+        List<SessionSender> result = new ArrayList<>();
+        for (Shard shard : shards) {
+            result.addAll(shard.sessions.values());
+        }
+        return result;
+    }
+
+    /**
+     * 群发消息：每个分片投递一个任务，由分片线程把消息放入各会话的发送队列
+     *
+     * @param message: 消息载体
+     */
+    public void broadcast(OutboundMessage message) {
+        FanOut fanOut = metrics.newFanOut();
+        message.track(fanOut);
+        for (Shard shard : shards) {
+            if (shard.sessions.isEmpty()) {
+                continue;
+            }
+            fanOut.acquire();
+            shard.execute(fanOut, () -> {
+                for (SessionSender sender : shard.sessions.values()) {
+                    if (tracer.isActive()) {
+                        tracer.outbound(sender.getId(), null, message);
+                    }
+                    fanOut.acquire();
+                    sender.send(message);
+                }
+            });
+        }
+        fanOut.release();
+    }
+
+    /**
+     * 按主题推送：只遍历订阅了该主题的会话
+     *
+     * @param topic:   主题
+     * @param message: 消息载体
+     */
+    public void publish(String topic, OutboundMessage message) {
+        FanOut fanOut = metrics.newFanOut();
+        message.track(fanOut);
+        for (Shard shard : shards) {
+            Set<SessionSender> subscribers = shard.topics.get(topic);
+            if (subscribers == null || subscribers.isEmpty()) {
+                continue;
+            }
+            fanOut.acquire();
+            shard.execute(fanOut, () -> {
+                for (SessionSender sender : subscribers) {
+                    if (tracer.isActive()) {
+                        tracer.outbound(sender.getId(), topic, message);
+                    }
+                    fanOut.acquire();
+                    sender.send(message);
+                }
+            });
+        }
+        fanOut.release();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Shard shard : shards) {
+            shard.executor.shutdown();
+        }
+    }
+
+    private Shard shardOf(String sessionId) {
+        return shards[(sessionId.hashCode() & Integer.MAX_VALUE) % shards.length];
+    }
+
+    private static final class Shard {
+
+        private final Map<String, SessionSender> sessions = new ConcurrentHashMap<>();
+
+        /**
+         * 主题 -> 订阅会话，读多写少，使用写时复制的集合
+         */
+        private final Map<String, Set<SessionSender>> topics = new ConcurrentHashMap<>();
+
+        private final ExecutorService executor;
+
+        private Shard(ExecutorService executor) {
+            this.executor = executor;
+        }
+
+        private void join(String topic, SessionSender sender) {
+            topics.compute(topic, (k, subscribers) -> {
+                Set<SessionSender> result = subscribers == null ? new CopyOnWriteArraySet<>() : subscribers;
+                result.add(sender);
+                return result;
+            });
+        }
+
+        private void leave(String topic, SessionSender sender) {
+            topics.computeIfPresent(topic, (k, subscribers) -> {
+                subscribers.remove(sender);
+                return subscribers.isEmpty() ? null : subscribers;
+            });
+        }
+
+        /**
+         * 提交分片任务，任务结束或被拒绝时释放fanOut计数
+         */
+        private void execute(FanOut fanOut, Runnable task) {
+            try {
+                executor.execute(() -> {
+                    try {
+                        task.run();
+                    } finally {
+                        fanOut.release();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                fanOut.release();
+                log.warn("群发线程已关闭，丢弃群发任务");
+            }
+        }
+    }
+}
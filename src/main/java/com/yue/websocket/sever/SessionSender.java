@@ -0,0 +1,297 @@
+package com.yue.websocket.sever;
+
+import com.yue.websocket.common.utils.TokenBucket;
+import com.yue.websocket.sever.codec.MessageCodec;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.websocket.CloseReason;
+import javax.websocket.SendHandler;
+import javax.websocket.SendResult;
+import javax.websocket.Session;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @ProjectName: spring-boot-websocket
+ * @Package: com.yue.websocket.sever
+ * @ClassName: SessionSender
+ * @Author: YUE
+ * @Description: 单个会话的有界发送队列，同一时刻只有一条消息在写，写完再发下一条
+ * @Date: 2026/10/17 9:45
+ * @Version: 1.0
+ */
+@Slf4j
+public class SessionSender implements SendHandler {
+
+    private final Session session;
+
+    private final int capacity;
+
+    private final OverflowPolicy overflowPolicy;
+
+    /**
+     * 会话协商的编解码，为空时按文本帧发送
+     */
+    private final MessageCodec codec;
+
+    /**
+     * 为空时不记录指标
+     */
+    private final WebSocketMetrics metrics;
+
+    /**
+     * 正在写的消息，受this锁保护
+     */
+    private OutboundMessage inFlight;
+
+    /**
+     * 待发送的消息，受this锁保护
+     */
+    private final Deque<OutboundMessage> queue = new ArrayDeque<>();
+
+    /**
+     * 是否有消息正在写，受this锁保护
+     */
+    private boolean sending;
+
+    private volatile boolean closed;
+
+    /**
+     * 最后一次收到客户端数据的时间(System.nanoTime)
+     */
+    private volatile long lastSeen = System.nanoTime();
+
+    /**
+     * 客户端发送消息的限流，为空时不限制
+     */
+    private volatile TokenBucket inboundLimit;
+
+    /**
+     * 因超过限流被丢弃的客户端消息数
+     */
+    private final AtomicLong inboundDropped = new AtomicLong();
+
+    /**
+     * 因队列满被丢弃的消息数
+     */
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * 异步写失败次数
+     */
+    private final AtomicLong failed = new AtomicLong();
+
+    /**
+     * 当前会话订阅的主题
+     */
+    private final Set<String> topics = ConcurrentHashMap.newKeySet();
+
+    public SessionSender(Session session, int capacity, OverflowPolicy overflowPolicy) {
+        this(session, capacity, overflowPolicy, null);
+    }
+
+    public SessionSender(Session session, int capacity, OverflowPolicy overflowPolicy, MessageCodec codec) {
+        this(session, capacity, overflowPolicy, codec, null);
+    }
+
+    public SessionSender(Session session, int capacity, OverflowPolicy overflowPolicy, MessageCodec codec,
+                         WebSocketMetrics metrics) {
+        this.session = session;
+        this.capacity = Math.max(1, capacity);
+        this.overflowPolicy = overflowPolicy;
+        this.codec = codec;
+        this.metrics = metrics;
+    }
+
+    public Session getSession() {
+        return session;
+    }
+
+    public String getId() {
+        return session.getId();
+    }
+
+    public Set<String> getTopics() {
+        return topics;
+    }
+
+    public MessageCodec getCodec() {
+        return codec;
+    }
+
+    /**
+     * 收到客户端消息或pong时更新最后活跃时间
+     */
+    public void touch() {
+        lastSeen = System.nanoTime();
+    }
+
+    public long getLastSeen() {
+        return lastSeen;
+    }
+
+    public void setInboundLimit(TokenBucket inboundLimit) {
+        this.inboundLimit = inboundLimit;
+    }
+
+    /**
+     * 客户端每发一条消息取一个令牌
+     *
+     * @return: 超过限流时返回false，并计入丢弃数
+     */
+    public boolean tryAcquireInbound() {
+        TokenBucket limit = inboundLimit;
+        if (limit == null || limit.tryAcquire()) {
+            return true;
+        }
+        inboundDropped.incrementAndGet();
+        return false;
+    }
+
+    public long getInboundDropped() {
+        return inboundDropped.get();
+    }
+
+    /**
+     * 消息入队，没有正在写的消息时立即发送
+     *
+     * @param message: 消息载体
+     */
+    public void send(OutboundMessage message) {
+        OutboundMessage next;
+        int discarded = 0;
+        boolean overflowClosed = false;
+        synchronized (this) {
+            if (closed) {
+                message.complete();
+                return;
+            }
+            if (queue.size() >= capacity) {
+                switch (overflowPolicy) {
+                    case COALESCE:
+                        discarded = discardAll();
+                        break;
+                    case CLOSE:
+                        discarded = discardAll() + 1;
+                        message.complete();
+                        closed = true;
+                        overflowClosed = true;
+                        break;
+                    case DROP_OLDEST:
+                    default:
+                        queue.pollFirst().complete();
+                        discarded = 1;
+                        break;
+                }
+                dropped.addAndGet(discarded);
+            }
+            if (closed) {
+                next = null;
+            } else {
+                queue.offerLast(message);
+                if (sending) {
+                    next = null;
+                } else {
+                    sending = true;
+                    next = queue.pollFirst();
+                    inFlight = next;
+                }
+            }
+        }
+        if (discarded > 0 && metrics != null) {
+            metrics.dropped(discarded);
+        }
+        if (next != null) {
+            write(next);
+        } else if (overflowClosed) {
+            closeAsSlowConsumer();
+        }
+    }
+
+    @Override
+    public void onResult(SendResult result) {
+        OutboundMessage done;
+        OutboundMessage next;
+        synchronized (this) {
+            done = inFlight;
+            next = closed ? null : queue.pollFirst();
+            inFlight = next;
+            if (next == null) {
+                sending = false;
+            }
+        }
+        if (!result.isOK()) {
+            failed.incrementAndGet();
+            if (metrics != null) {
+                metrics.sendFailed();
+            }
+        } else if (metrics != null && done != null) {
+            metrics.outbound(codec != null && codec.isBinary() ? done.getFrame(codec).remaining() : done.getByteLength());
+        }
+        if (done != null) {
+            done.complete();
+        }
+        if (next != null) {
+            write(next);
+        }
+    }
+
+    /**
+     * 会话关闭后丢弃所有排队消息
+     */
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            discardAll();
+        }
+    }
+
+    public synchronized int getQueueSize() {
+        return queue.size();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * 清空队列，返回丢弃的条数，调用方需持有this锁
+     */
+    private int discardAll() {
+        int count = queue.size();
+        OutboundMessage message;
+        while ((message = queue.pollFirst()) != null) {
+            message.complete();
+        }
+        return count;
+    }
+
+    private void write(OutboundMessage message) {
+        try {
+            message.sendTo(session, codec, this);
+        } catch (Exception e) {
+            onResult(new SendResult(e));
+        }
+    }
+
+    private void closeAsSlowConsumer() {
+        log.warn("客户端[{}]消费过慢，发送队列已满，关闭连接", session.getId());
+        try {
+            session.close(new CloseReason(CloseReason.CloseCodes.VIOLATED_POLICY, "slow consumer"));
+        } catch (IOException e) {
+            log.warn("关闭慢消费者[{}]连接异常：{}", session.getId(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.yue.websocket.sever;
+
+import com.alibaba.fastjson.JSONObject;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @ProjectName: spring-boot-websocket
+ * @Package: com.yue.websocket.sever
+ * @ClassName: StateSync
+ * @Author: YUE
+ * @Description: 按主题维护带版本号的状态快照，新订阅者收到完整快照，之后只推送变化的字段
+ * 快照帧：{"type":"snapshot","topic":"*","seq":12,"data":{...}}
+ * 增量帧：{"type":"delta","topic":"*","seq":13,"data":{...}}，被删除的字段值为null
+ * 客户端丢弃seq不大于当前版本的增量，发现跳号时发送{"action":"resync","topic":"*"}重新获取快照
+ * 快照只保存在本节点，各节点独立编号
+ * @Date: 2026/10/17 21:00
+ * @Version: 1.0
+ */
+@Component
+public class StateSync {
+
+    /**
+     * 所有会话共享的状态
+     */
+    public static final String GLOBAL = "*";
+
+    private final SessionRegistry registry;
+
+    private final Map<String, TopicState> states = new ConcurrentHashMap<>();
+
+    public StateSync(SessionRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * 合并状态变化，只推送与快照不同的字段，没有变化时不推送
+     *
+     * @param topic:   主题，GLOBAL表示推送给所有会话
+     * @param changes: 变化的字段，值为null表示删除
+     * @return: 是否产生了新版本
+     */
+    public boolean update(String topic, Map<String, Object> changes) {
+        TopicState state = states.computeIfAbsent(topic, t -> new TopicState());
+        synchronized (state) {
+            JSONObject delta = new JSONObject(true);
+            for (Map.Entry<String, Object> entry : changes.entrySet()) {
+                String field = entry.getKey();
+                Object value = entry.getValue();
+                if (value == null ? state.data.containsKey(field) : !Objects.equals(value, state.data.get(field))) {
+                    delta.put(field, value);
+                }
+            }
+            if (delta.isEmpty()) {
+                return false;
+            }
+            for (Map.Entry<String, Object> entry : delta.entrySet()) {
+                if (entry.getValue() == null) {
+                    state.data.remove(entry.getKey());
+                } else {
+                    state.data.put(entry.getKey(), entry.getValue());
+                }
+            }
+            state.seq++;
+            state.snapshot = null;
+            // 在锁内投递，保证同一主题的增量按版本号顺序进入各分片
+            OutboundMessage message = OutboundMessage.of(frame("delta", topic, state.seq, delta));
+            if (GLOBAL.equals(topic)) {
+                registry.broadcast(message);
+            } else {
+                registry.publish(topic, message);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * 发送指定主题的完整快照，没有状态的主题发送版本号为0的空快照
+     */
+    public void sendSnapshot(SessionSender sender, String topic) {
+        TopicState state = states.get(topic);
+        if (state == null) {
+            sender.send(OutboundMessage.of(frame("snapshot", topic, 0, new JSONObject())));
+            return;
+        }
+        sender.send(state.snapshot(topic));
+    }
+
+    /**
+     * 新会话建立时发送全局状态及其订阅主题的快照，没有状态的主题不发送
+     */
+    public void sendSnapshots(SessionSender sender) {
+        List<String> topics = new ArrayList<>(sender.getTopics().size() + 1);
+        topics.add(GLOBAL);
+        topics.addAll(sender.getTopics());
+        for (String topic : topics) {
+            sendExistingSnapshot(sender, topic);
+        }
+    }
+
+    /**
+     * 主题已有状态时发送其快照
+     */
+    public void sendExistingSnapshot(SessionSender sender, String topic) {
+        TopicState state = states.get(topic);
+        if (state != null) {
+            sender.send(state.snapshot(topic));
+        }
+    }
+
+    public long getSeq(String topic) {
+        TopicState state = states.get(topic);
+        if (state == null) {
+            return 0;
+        }
+        synchronized (state) {
+            return state.seq;
+        }
+    }
+
+    private static String frame(String type, String topic, long seq, JSONObject data) {
+        JSONObject frame = new JSONObject(true);
+        frame.put("type", type);
+        frame.put("topic", topic);
+        frame.put("seq", seq);
+        frame.put("data", data);
+        return frame.toJSONString();
+    }
+
+    private static final class TopicState {
+
+        private final JSONObject data = new JSONObject(true);
+
+        private long seq;
+
+        /**
+         * 当前版本的快照帧，版本变化后重新生成，受this锁保护
+         */
+        private OutboundMessage snapshot;
+
+        private synchronized OutboundMessage snapshot(String topic) {
+            if (snapshot == null) {
+                snapshot = OutboundMessage.of(frame("snapshot", topic, seq, data));
+            }
+            return snapshot;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.yue.websocket.sever;
+
+import com.yue.websocket.config.WebSocketProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.websocket.Extension;
+import javax.websocket.server.ServerEndpointConfig;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @ProjectName: spring-boot-websocket
+ * @Package: com.yue.websocket.sever
+ * @ClassName: WebSocketConfigurator
+ * @Author: YUE
+ * @Description: 握手配置，permessage-deflate由Tomcat实现，这里只决定是否允许协商
+ * @Date: 2026/10/17 20:35
+ * @Version: 1.0
+ */
+@Component
+public class WebSocketConfigurator extends ServerEndpointConfig.Configurator {
+
+    private static WebSocketProperties properties;
+
+    /**
+     * 配置器实例由容器创建，通过静态字段共享Spring注入的配置
+     */
+    @Autowired
+    public void setProperties(WebSocketProperties properties) {
+        WebSocketConfigurator.properties = properties;
+    }
+
+    @Override
+    public List<Extension> getNegotiatedExtensions(List<Extension> installed, List<Extension> requested) {
+        if (properties != null && !properties.getCodec().isPermessageDeflate()) {
+            return Collections.emptyList();
+        }
+        return super.getNegotiatedExtensions(installed, requested);
+    }
+}
@@ -0,0 +1,186 @@
+package com.yue.websocket.sever;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @ProjectName: spring-boot-websocket
+ * @Package: com.yue.websocket.sever
+ * @ClassName: WebSocketMetrics
+ * @Author: YUE
+ * @Description: WebSocket服务的Micrometer指标，通过Actuator的/actuator/prometheus导出
+ * 发送队列深度按全部会话汇总(总数/最大值)，不按会话打标签，单个会话的情况看/webSocket/slowConsumers
+ * @Date: 2026/10/17 22:05
+ * @Version: 1.0
+ */
+@Component
+public class WebSocketMetrics {
+
+    private final MeterRegistry registry;
+
+    private final Counter opened;
+
+    private final Counter closed;
+
+    private final Counter inboundMessages;
+
+    private final Counter inboundBytes;
+
+    private final Counter outboundMessages;
+
+    private final Counter outboundBytes;
+
+    private final Counter sendFailures;
+
+    private final Counter dropped;
+
+    private final Counter idleClosed;
+
+    private final Counter inboundRejected;
+
+    private final Counter dispatchRejected;
+
+    private final Timer fanOut;
+
+    private final Map<String, Counter> rejected = new ConcurrentHashMap<>();
+
+    public WebSocketMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.opened = Counter.builder("websocket.sessions.opened").description("建立的连接数").register(registry);
+        this.closed = Counter.builder("websocket.sessions.closed").description("关闭的连接数").register(registry);
+        this.inboundMessages = Counter.builder("websocket.messages.inbound").description("收到的消息数").register(registry);
+        this.inboundBytes = Counter.builder("websocket.bytes.inbound").baseUnit("bytes").register(registry);
+        this.outboundMessages = Counter.builder("websocket.messages.outbound").description("写完的消息数").register(registry);
+        this.outboundBytes = Counter.builder("websocket.bytes.outbound").baseUnit("bytes").register(registry);
+        this.sendFailures = Counter.builder("websocket.send.failures").description("异步写失败次数").register(registry);
+        this.dropped = Counter.builder("websocket.send.dropped").description("因发送队列满被丢弃的消息数").register(registry);
+        this.idleClosed = Counter.builder("websocket.sessions.idle.closed").description("心跳超时被关闭的连接数").register(registry);
+        this.inboundRejected = Counter.builder("websocket.messages.inbound.rejected")
+                .description("超过限流被丢弃的客户端消息数").register(registry);
+        this.dispatchRejected = Counter.builder("websocket.dispatch.rejected")
+                .description("处理队列已满被拒绝的客户端消息数").register(registry);
+        this.fanOut = Timer.builder("websocket.broadcast.fanout")
+                .description("群发从提交到最后一个接收者写完的耗时")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(10))
+                .register(registry);
+    }
+
+    /**
+     * 不导出的指标，用于单元测试和基准测试
+     */
+    public static WebSocketMetrics noop() {
+        return new WebSocketMetrics(new CompositeMeterRegistry());
+    }
+
+    /**
+     * 注册会话数和发送队列深度，取值时遍历注册表
+     */
+    void bind(SessionRegistry sessions) {
+        Gauge.builder("websocket.sessions.active", sessions, SessionRegistry::size)
+                .description("当前在线连接数").register(registry);
+        Gauge.builder("websocket.send.queue.depth", sessions, s -> queueDepth(s, false))
+                .description("所有会话排队中的消息总数").register(registry);
+        Gauge.builder("websocket.send.queue.depth.max", sessions, s -> queueDepth(s, true))
+                .description("单个会话最大排队数").register(registry);
+    }
+
+    /**
+     * 注册客户端消息处理的排队数
+     */
+    void bind(InboundDispatcher dispatcher) {
+        Gauge.builder("websocket.dispatch.inflight", dispatcher, InboundDispatcher::getInFlight)
+                .description("已入队未处理完的客户端消息数").register(registry);
+    }
+
+    public void opened() {
+        opened.increment();
+    }
+
+    public void closed() {
+        closed.increment();
+    }
+
+    public void inbound(long bytes) {
+        inboundMessages.increment();
+        inboundBytes.increment(bytes);
+    }
+
+    void outbound(long bytes) {
+        outboundMessages.increment();
+        outboundBytes.increment(bytes);
+    }
+
+    void sendFailed() {
+        sendFailures.increment();
+    }
+
+    void dropped(long count) {
+        dropped.increment(count);
+    }
+
+    void inboundRejected() {
+        inboundRejected.increment();
+    }
+
+    void dispatchRejected() {
+        dispatchRejected.increment();
+    }
+
+    void idleClosed() {
+        idleClosed.increment();
+    }
+
+    /**
+     * 握手被拒绝，按原因分别计数
+     */
+    public void rejected(String reason) {
+        rejected.computeIfAbsent(reason, r -> Counter.builder("websocket.handshake.rejected")
+                .description("被准入控制拒绝的握手数").tag("reason", r).register(registry)).increment();
+    }
+
+    FanOut newFanOut() {
+        return new FanOut(fanOut);
+    }
+
+    /**
+     * 字符串按UTF-8编码后的字节数，不实际编码
+     */
+    public static long utf8Length(CharSequence text) {
+        long bytes = 0;
+        for (int i = 0, n = text.length(); i < n; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                bytes++;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(text.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+
+    private static double queueDepth(SessionRegistry sessions, boolean max) {
+        long total = 0;
+        int largest = 0;
+        for (SessionSender sender : sessions.senders()) {
+            int size = sender.getQueueSize();
+            total += size;
+            largest = Math.max(largest, size);
+        }
+        return max ? largest : total;
+    }
+}
@@ -2,9 +2,18 @@ package com.yue.websocket.sever;
 
 import javax.websocket.*;
 
+import com.alibaba.fastjson.JSONException;
 import com.alibaba.fastjson.JSONObject;
+import com.yue.websocket.cluster.ClusterBus;
+import com.yue.websocket.cluster.SessionDirectory;
+import com.yue.websocket.common.utils.TokenBucket;
+import com.yue.websocket.config.WebSocketProperties;
+import com.yue.websocket.sever.codec.MessageCodec;
+import com.yue.websocket.sever.codec.MessageCodecs;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.collections4.MapUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import javax.websocket.OnClose;
@@ -12,8 +21,12 @@ import javax.websocket.OnError;
 import javax.websocket.OnMessage;
 import javax.websocket.OnOpen;
 import javax.websocket.server.ServerEndpoint;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -26,7 +39,9 @@ import java.util.concurrent.atomic.AtomicInteger;
  * @Version: 1.0
  */
 @Slf4j
-@ServerEndpoint("/webSocket/{param}")
+@ServerEndpoint(value = "/webSocket/{param}",
+        subprotocols = {"json", "msgpack"},
+        configurator = WebSocketConfigurator.class)
 @Component
 public class WebSocketServer {
     /**
@@ -35,9 +50,94 @@ public class WebSocketServer {
     private static AtomicInteger onlineCount = new AtomicInteger(0);
 
     /**
-     * 存放所有在线的客户端
+     * 存放所有在线的客户端，按会话ID分片
      */
-    private static Map<String, Session> clients = new ConcurrentHashMap<>();
+    private static SessionRegistry clients;
+
+    private static WebSocketProperties properties;
+
+    private static MessageTracer tracer;
+
+    private static ClusterBus clusterBus;
+
+    private static SessionDirectory sessionDirectory;
+
+    private static MessageCodecs codecs;
+
+    private static StateSync stateSync;
+
+    private static ConflatingPublisher conflatingPublisher;
+
+    private static WebSocketMetrics metrics;
+
+    private static IdleMonitor idleMonitor;
+
+    private static InboundDispatcher dispatcher;
+
+    private static ReliableDelivery reliableDelivery;
+
+    /**
+     * 端点实例由容器创建，通过静态字段共享Spring注入的配置
+     */
+    @Autowired
+    public void setProperties(WebSocketProperties properties) {
+        WebSocketServer.properties = properties;
+    }
+
+    @Autowired
+    public void setClients(SessionRegistry clients) {
+        WebSocketServer.clients = clients;
+    }
+
+    @Autowired
+    public void setTracer(MessageTracer tracer) {
+        WebSocketServer.tracer = tracer;
+    }
+
+    @Autowired
+    public void setClusterBus(ClusterBus clusterBus) {
+        WebSocketServer.clusterBus = clusterBus;
+    }
+
+    @Autowired
+    public void setSessionDirectory(SessionDirectory sessionDirectory) {
+        WebSocketServer.sessionDirectory = sessionDirectory;
+    }
+
+    @Autowired
+    public void setCodecs(MessageCodecs codecs) {
+        WebSocketServer.codecs = codecs;
+    }
+
+    @Autowired
+    public void setStateSync(StateSync stateSync) {
+        WebSocketServer.stateSync = stateSync;
+    }
+
+    @Autowired
+    public void setConflatingPublisher(ConflatingPublisher conflatingPublisher) {
+        WebSocketServer.conflatingPublisher = conflatingPublisher;
+    }
+
+    @Autowired
+    public void setMetrics(WebSocketMetrics metrics) {
+        WebSocketServer.metrics = metrics;
+    }
+
+    @Autowired
+    public void setIdleMonitor(IdleMonitor idleMonitor) {
+        WebSocketServer.idleMonitor = idleMonitor;
+    }
+
+    @Autowired
+    public void setDispatcher(InboundDispatcher dispatcher) {
+        WebSocketServer.dispatcher = dispatcher;
+    }
+
+    @Autowired
+    public void setReliableDelivery(ReliableDelivery reliableDelivery) {
+        WebSocketServer.reliableDelivery = reliableDelivery;
+    }
 
     /**
      * 连接建立成功调用的方法
@@ -49,7 +149,20 @@ public class WebSocketServer {
         log.info("=========>参数：{}", param);
 
         onlineCount.incrementAndGet(); // 在线数加1
-        clients.put(session.getId(), session);
+        metrics.opened();
+        WebSocketProperties.Send send = properties.getSend();
+        MessageCodec codec = codecs.resolve(session.getNegotiatedSubprotocol());
+        SessionSender sender = new SessionSender(session, send.getQueueCapacity(), send.getOverflowPolicy(), codec, metrics);
+        WebSocketProperties.Inbound inbound = properties.getInbound();
+        if (inbound.getPermitsPerSecond() > 0) {
+            sender.setInboundLimit(new TokenBucket(inbound.getPermitsPerSecond(), inbound.getBurst()));
+        }
+        clients.register(sender);
+        String topic = resolveTopic(param);
+        // 需要补发时订阅在可靠投递的缓冲区锁内进行，保证补发消息排在实时消息前面
+        reliableDelivery.onOpen(sender, param, topic, () -> subscribe(sender, topic));
+        stateSync.sendSnapshots(sender);
+        idleMonitor.watch(sender);
         log.info("有新连接加入：{}，当前在线人数为：{}", session.getId(), onlineCount.get());
     }
 
@@ -59,7 +172,17 @@ public class WebSocketServer {
     @OnClose
     public void onClose(Session session) {
         onlineCount.decrementAndGet(); // 在线数减1
-        clients.remove(session.getId());
+        metrics.closed();
+        SessionSender sender = clients.get(session.getId());
+        if (sender != null) {
+            for (String topic : sender.getTopics()) {
+                sessionDirectory.unregister(topic, sender.getId());
+            }
+            clients.unregister(session.getId());
+            sender.close();
+        }
+        dispatcher.remove(session.getId());
+        tracer.remove(session.getId());
         log.info("有一连接关闭：{}，当前在线人数为：{}", session.getId(), onlineCount.get());
     }
 
@@ -70,14 +193,104 @@ public class WebSocketServer {
      */
     @OnMessage
     public void onMessage(String message, Session session) {
-        log.info("服务端收到客户端[{}]的消息:{}", session.getId(), message);
+        metrics.inbound(WebSocketMetrics.utf8Length(message));
+        SessionSender sender = clients.get(session.getId());
+        if (accept(sender)) {
+            dispatch(sender, session, () -> handleMessage(message, session));
+        }
+    }
+
+    /**
+     * 收到pong，只更新最后活跃时间
+     */
+    @OnMessage
+    public void onPong(PongMessage pong, Session session) {
+        SessionSender sender = clients.get(session.getId());
+        if (sender != null) {
+            sender.touch();
+        }
+    }
+
+    /**
+     * 入站限流：超出的消息直接丢弃，不逐条打印日志；CLOSE策略下关闭连接，只在关闭时打印一次
+     *
+     * @return 是否继续处理该消息
+     */
+    private boolean accept(SessionSender sender) {
+        if (sender == null) {
+            return true;
+        }
+        sender.touch();
+        if (sender.tryAcquireInbound()) {
+            return true;
+        }
+        metrics.inboundRejected();
+        if (properties.getInbound().getPolicy() == InboundPolicy.CLOSE && !sender.isClosed()) {
+            close(sender, CloseReason.CloseCodes.VIOLATED_POLICY, "rate limit", "发送消息过于频繁");
+        }
+        return false;
+    }
+
+    /**
+     * 把消息交给工作线程处理，排队已满时按拒绝策略丢弃或以1013关闭连接
+     */
+    private void dispatch(SessionSender sender, Session session, Runnable task) {
+        if (dispatcher.dispatch(session.getId(), task)) {
+            return;
+        }
+        metrics.dispatchRejected();
+        if (properties.getDispatch().getPolicy() == InboundPolicy.CLOSE && sender != null && !sender.isClosed()) {
+            close(sender, CloseReason.CloseCodes.TRY_AGAIN_LATER, "server busy", "消息处理排队已满");
+        }
+    }
+
+    private void close(SessionSender sender, CloseReason.CloseCode code, String reason, String cause) {
+        sender.close();
+        log.warn("客户端[{}]{}，关闭连接", sender.getId(), cause);
+        try {
+            sender.getSession().close(new CloseReason(code, reason));
+        } catch (IOException e) {
+            log.warn("关闭连接[{}]异常：{}", sender.getId(), e.getMessage());
+        }
+    }
+
+    private void handleMessage(String message, Session session) {
+        if (tracer.isActive()) {
+            tracer.inbound(session.getId(), message);
+        }
+        if (handleSubscription(message, session)) {
+            return;
+        }
         this.sendMessage(message, session);
     }
 
+    /**
+     * 收到二进制消息，按会话协商的编解码转成JSON文本后与文本消息走同一流程
+     *
+     * @param message 客户端发送过来的二进制消息
+     */
+    @OnMessage
+    public void onBinaryMessage(ByteBuffer message, Session session) {
+        metrics.inbound(message.remaining());
+        SessionSender sender = clients.get(session.getId());
+        if (!accept(sender)) {
+            return;
+        }
+        MessageCodec codec = sender == null || sender.getCodec() == null || !sender.getCodec().isBinary()
+                ? codecs.getBinaryCodec() : sender.getCodec();
+        String text;
+        try {
+            text = codec.decode(message);
+        } catch (RuntimeException e) {
+            log.warn("客户端[{}]二进制消息解码失败：{}", session.getId(), e.getMessage());
+            return;
+        }
+        dispatch(sender, session, () -> handleMessage(text, session));
+    }
+
     @OnError
     public void onError(Session session, Throwable error) {
-        log.error("发生错误");
-        error.printStackTrace();
+        log.error("会话[{}]发生错误", session.getId(), error);
     }
 
     /**
@@ -86,26 +299,173 @@ public class WebSocketServer {
      * @param message 消息内容
      */
     private void sendMessage(String message, Session fromSession) {
-        for (Map.Entry<String, Session> sessionEntry : clients.entrySet()) {
-            Session toSession = sessionEntry.getValue();
-            // 排除掉自己
-//            if (!fromSession.getId().equals(toSession.getId())) {
-            log.info("服务端给客户端[{}]发送消息{}", toSession.getId(), message);
-            toSession.getAsyncRemote().sendText(message);
-//            }
-        }
+        // 排除掉自己
+//        if (!fromSession.getId().equals(toSession.getId())) {
+        clusterBus.publish(null, message);
+//        }
     }
 
     /**
-     * 群发消息
+     * 群发消息，集群模式下所有节点的客户端都能收到
      *
      * @param message 消息内容
      */
     public void sendMessage(String message) {
-        for (Map.Entry<String, Session> sessionEntry : clients.entrySet()) {
-            Session toSession = sessionEntry.getValue();
-            log.info("服务端给客户端[{}]发送消息{}", toSession.getId(), message);
-            toSession.getAsyncRemote().sendText(message);
+        clusterBus.publish(null, message);
+    }
+
+    /**
+     * 按主题推送消息，只发送给订阅了该主题的客户端，集群模式下包括其他节点
+     *
+     * @param topic   主题，如门店ID
+     * @param message 消息内容
+     */
+    public void sendMessage(String topic, String message) {
+        clusterBus.publish(topic, message);
+    }
+
+    /**
+     * 合并推送：合并窗口内同一主题只发送最新一条，适合只关心最新值的实时数据
+     *
+     * @param topic   主题，为空时群发
+     * @param message 消息内容
+     */
+    public void sendLatest(String topic, String message) {
+        conflatingPublisher.publish(topic, message);
+    }
+
+    /**
+     * 可靠推送：消息带编号并在本节点保留，客户端断线重连后按确认位置补发，客户端需按seq去重
+     *
+     * @param topic   主题，如门店ID
+     * @param message 消息内容
+     */
+    public void sendReliable(String topic, String message) {
+        reliableDelivery.publish(topic, message);
+    }
+
+    /**
+     * 点对点推送：通过集群会话目录找到持有该参数连接的节点，只发给这些节点
+     *
+     * @param param   连接参数(主题)，如门店ID
+     * @param message 消息内容
+     */
+    public void sendTo(String param, String message) {
+        sessionDirectory.sendTo(param, message);
+    }
+
+    /**
+     * 本节点群发消息，消息只构建一次，交给各分片线程异步投递后立即返回
+     *
+     * @param message 消息载体
+     */
+    public void broadcast(OutboundMessage message) {
+        clients.broadcast(message);
+    }
+
+    /**
+     * 解析连接参数对应的主题：JSON参数取storeId，否则直接使用参数本身
+     *
+     * @param param 连接路径上的参数
+     * @return 主题，参数为空时返回null
+     */
+    static String resolveTopic(String param) {
+        if (StringUtils.isBlank(param)) {
+            return null;
+        }
+        if (param.startsWith("{")) {
+            try {
+                JSONObject json = JSONObject.parseObject(param);
+                String storeId = json.getString("storeId");
+                return storeId != null ? storeId : json.getString("store_id");
+            } catch (JSONException e) {
+                return param;
+            }
+        }
+        return param;
+    }
+
+    /**
+     * 订阅主题，同时登记到集群会话目录
+     */
+    private void subscribe(SessionSender sender, String topic) {
+        if (topic == null) {
+            return;
+        }
+        clients.subscribe(sender, topic);
+        sessionDirectory.register(topic, sender.getId());
+    }
+
+    /**
+     * 处理订阅帧：{"action":"subscribe","topic":"8"} / {"action":"unsubscribe","topic":"8"}
+     * 以及重新同步帧：{"action":"resync","topic":"*"}
+     * 可靠投递的确认帧：{"action":"ack","topic":"8","seq":12}
+     * 和恢复帧(订阅并补发)：{"action":"resume","topic":"8","epoch":"e1","seq":12}
+     *
+     * @return 是否为订阅帧
+     */
+    private boolean handleSubscription(String message, Session session) {
+        if (!message.startsWith("{") || !message.contains("\"action\"")) {
+            return false;
+        }
+        JSONObject frame;
+        try {
+            frame = JSONObject.parseObject(message);
+        } catch (JSONException e) {
+            return false;
+        }
+        String action = frame.getString("action");
+        String topic = frame.getString("topic");
+        SessionSender sender = clients.get(session.getId());
+        if (sender == null || topic == null) {
+            return false;
+        }
+        if ("subscribe".equals(action)) {
+            subscribe(sender, topic);
+            stateSync.sendExistingSnapshot(sender, topic);
+            return true;
+        }
+        if ("resync".equals(action)) {
+            stateSync.sendSnapshot(sender, topic);
+            return true;
+        }
+        if ("ack".equals(action)) {
+            String param = MapUtils.getString(session.getPathParameters(), "param");
+            reliableDelivery.ack(ReliableDelivery.resolveClientId(param), topic, frame.getLongValue("seq"));
+            return true;
+        }
+        if ("resume".equals(action)) {
+            reliableDelivery.resume(sender, topic, frame.getString("epoch"), frame.getLongValue("seq"),
+                    () -> subscribe(sender, topic));
+            return true;
+        }
+        if ("unsubscribe".equals(action)) {
+            clients.unsubscribe(sender, topic);
+            sessionDirectory.unregister(topic, sender.getId());
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 获取慢消费者列表：排队数达到阈值或发生过丢弃的会话
+     *
+     * @return 每个会话的排队数、丢弃数、写失败数
+     */
+    public List<Map<String, Object>> getSlowConsumers() {
+        int threshold = properties.getSend().getSlowConsumerThreshold();
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (SessionSender sender : clients.senders()) {
+            int queued = sender.getQueueSize();
+            if (queued >= threshold || sender.getDropped() > 0) {
+                Map<String, Object> item = new LinkedHashMap<>();
+                item.put("sessionId", sender.getId());
+                item.put("queued", queued);
+                item.put("dropped", sender.getDropped());
+                item.put("failed", sender.getFailed());
+                result.add(item);
+            }
         }
+        return result;
     }
 }
@@ -0,0 +1,354 @@
+package com.yue.websocket.sever.codec;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONException;
+import com.alibaba.fastjson.JSONObject;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @ProjectName: spring-boot-websocket
+ * @Package: com.yue.websocket.sever.codec
+ * @ClassName: CompactBinaryCodec
+ * @Author: YUE
+ * @Description: 紧凑二进制编解码，MessagePack格式；字典里的字段名以整数下标代替字符串，客户端从
+ * /webSocket/codec/dictionary 获取同一份字典。非JSON的文本按MessagePack字符串编码
+ * @Date: 2026/10/17 20:15
+ * @Version: 1.0
+ */
+public class CompactBinaryCodec implements MessageCodec {
+
+    public static final String NAME = "msgpack";
+
+    /**
+     * 每个线程复用的编码缓冲区，编码完成后只复制出实际长度
+     */
+    private static final ThreadLocal<Output> OUTPUT = ThreadLocal.withInitial(Output::new);
+
+    /**
+     * 默认允许解码的最大字符串字节数/数组元素数/对象字段数
+     */
+    public static final int DEFAULT_MAX_LENGTH = 1024 * 1024;
+
+    /**
+     * 最大嵌套层数，防止恶意构造的深层嵌套导致栈溢出
+     */
+    private static final int MAX_DEPTH = 64;
+
+    private final List<String> dictionary;
+
+    private final Map<String, Integer> indexes = new HashMap<>();
+
+    private final int maxLength;
+
+    public CompactBinaryCodec(List<String> dictionary) {
+        this(dictionary, DEFAULT_MAX_LENGTH);
+    }
+
+    public CompactBinaryCodec(List<String> dictionary, int maxLength) {
+        this.dictionary = dictionary;
+        this.maxLength = maxLength;
+        for (int i = 0; i < dictionary.size(); i++) {
+            indexes.put(dictionary.get(i), i);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean isBinary() {
+        return true;
+    }
+
+    public List<String> getDictionary() {
+        return dictionary;
+    }
+
+    @Override
+    public ByteBuffer encode(String text) {
+        Object value;
+        try {
+            value = text.isEmpty() || (text.charAt(0) != '{' && text.charAt(0) != '[') ? text : JSON.parse(text);
+        } catch (JSONException e) {
+            value = text;
+        }
+        Output out = OUTPUT.get();
+        out.reset();
+        write(out, value);
+        return out.toByteBuffer();
+    }
+
+    @Override
+    public String decode(ByteBuffer buffer) {
+        Object value = read(buffer, 0);
+        return value instanceof String ? (String) value : JSON.toJSONString(value);
+    }
+
+    private void write(Output out, Object value) {
+        if (value == null) {
+            out.put(0xc0);
+        } else if (value instanceof Boolean) {
+            out.put((Boolean) value ? 0xc3 : 0xc2);
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            writeLong(out, ((Number) value).longValue());
+        } else if (value instanceof BigInteger && ((BigInteger) value).bitLength() < 64) {
+            writeLong(out, ((BigInteger) value).longValue());
+        } else if (value instanceof Number && !(value instanceof BigInteger)) {
+            writeDouble(out, ((Number) value).doubleValue(), value);
+        } else if (value instanceof JSONObject) {
+            JSONObject map = (JSONObject) value;
+            writeHeader(out, map.size(), 0x80, 0xde, 0xdf);
+            for (Map.Entry<String, Object> entry : map.entrySet()) {
+                Integer index = indexes.get(entry.getKey());
+                if (index != null) {
+                    writeLong(out, index);
+                } else {
+                    writeString(out, entry.getKey());
+                }
+                write(out, entry.getValue());
+            }
+        } else if (value instanceof JSONArray) {
+            JSONArray array = (JSONArray) value;
+            writeHeader(out, array.size(), 0x90, 0xdc, 0xdd);
+            for (Object item : array) {
+                write(out, item);
+            }
+        } else {
+            writeString(out, value.toString());
+        }
+    }
+
+    private void writeLong(Output out, long v) {
+        if (v >= 0 && v < 128) {
+            out.put((int) v);
+        } else if (v < 0 && v >= -32) {
+            out.put((int) v & 0xff);
+        } else if (v >= Integer.MIN_VALUE && v <= Integer.MAX_VALUE) {
+            out.put(0xd2);
+            out.putInt((int) v);
+        } else {
+            out.put(0xd3);
+            out.putLong(v);
+        }
+    }
+
+    private void writeDouble(Output out, double v, Object original) {
+        if (original instanceof BigDecimal && ((BigDecimal) original).scale() <= 0) {
+            writeLong(out, ((BigDecimal) original).longValue());
+            return;
+        }
+        float f = (float) v;
+        if (f == v) {
+            out.put(0xca);
+            out.putInt(Float.floatToIntBits(f));
+        } else {
+            out.put(0xcb);
+            out.putLong(Double.doubleToLongBits(v));
+        }
+    }
+
+    private void writeString(Output out, String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length < 32) {
+            out.put(0xa0 | bytes.length);
+        } else if (bytes.length < 256) {
+            out.put(0xd9);
+            out.put(bytes.length);
+        } else if (bytes.length < 65536) {
+            out.put(0xda);
+            out.putShort(bytes.length);
+        } else {
+            out.put(0xdb);
+            out.putInt(bytes.length);
+        }
+        out.put(bytes);
+    }
+
+    private void writeHeader(Output out, int size, int fix, int code16, int code32) {
+        if (size < 16) {
+            out.put(fix | size);
+        } else if (size < 65536) {
+            out.put(code16);
+            out.putShort(size);
+        } else {
+            out.put(code32);
+            out.putInt(size);
+        }
+    }
+
+    private Object read(ByteBuffer in, int depth) {
+        if (depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("MessagePack嵌套层数超过" + MAX_DEPTH);
+        }
+        int b = in.get() & 0xff;
+        if (b < 0x80) {
+            return (long) b;
+        }
+        if (b >= 0xe0) {
+            return (long) (byte) b;
+        }
+        if ((b & 0xf0) == 0x80) {
+            return readMap(in, b & 0x0f, depth);
+        }
+        if ((b & 0xf0) == 0x90) {
+            return readArray(in, b & 0x0f, depth);
+        }
+        if ((b & 0xe0) == 0xa0) {
+            return readString(in, b & 0x1f);
+        }
+        switch (b) {
+            case 0xc0:
+                return null;
+            case 0xc2:
+                return false;
+            case 0xc3:
+                return true;
+            case 0xca:
+                return in.getFloat();
+            case 0xcb:
+                return in.getDouble();
+            case 0xcc:
+                return (long) (in.get() & 0xff);
+            case 0xcd:
+                return (long) (in.getShort() & 0xffff);
+            case 0xce:
+                return in.getInt() & 0xffffffffL;
+            case 0xcf:
+            case 0xd3:
+                return in.getLong();
+            case 0xd0:
+                return (long) in.get();
+            case 0xd1:
+                return (long) in.getShort();
+            case 0xd2:
+                return (long) in.getInt();
+            case 0xd9:
+                return readString(in, in.get() & 0xff);
+            case 0xda:
+                return readString(in, in.getShort() & 0xffff);
+            case 0xdb:
+                return readString(in, in.getInt());
+            case 0xdc:
+                return readArray(in, in.getShort() & 0xffff, depth);
+            case 0xdd:
+                return readArray(in, in.getInt(), depth);
+            case 0xde:
+                return readMap(in, in.getShort() & 0xffff, depth);
+            case 0xdf:
+                return readMap(in, in.getInt(), depth);
+            default:
+                throw new IllegalArgumentException("不支持的MessagePack类型: 0x" + Integer.toHexString(b));
+        }
+    }
+
+    private JSONObject readMap(ByteBuffer in, int size, int depth) {
+        // 每个字段至少占键、值各1字节
+        checkLength(in, size, 2);
+        JSONObject map = new JSONObject(true);
+        for (int i = 0; i < size; i++) {
+            Object key = read(in, depth + 1);
+            if (key instanceof Long && (Long) key >= 0 && (Long) key < dictionary.size()) {
+                key = dictionary.get(((Long) key).intValue());
+            }
+            map.put(String.valueOf(key), read(in, depth + 1));
+        }
+        return map;
+    }
+
+    private JSONArray readArray(ByteBuffer in, int size, int depth) {
+        checkLength(in, size, 1);
+        JSONArray array = new JSONArray(size);
+        for (int i = 0; i < size; i++) {
+            array.add(read(in, depth + 1));
+        }
+        return array;
+    }
+
+    private String readString(ByteBuffer in, int length) {
+        checkLength(in, length, 1);
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 分配前校验帧里声明的长度：不能为负(32位长度按有符号读取)、不能超过剩余字节、不能超过上限
+     *
+     * @param length:      声明的字节数或元素数
+     * @param minItemSize: 每个元素至少占用的字节数
+     */
+    private void checkLength(ByteBuffer in, int length, int minItemSize) {
+        if (length < 0 || length > maxLength || (long) length * minItemSize > in.remaining()) {
+            throw new IllegalArgumentException("MessagePack长度非法: " + length);
+        }
+    }
+
+    /**
+     * 可增长的字节缓冲区
+     */
+    private static final class Output {
+
+        private byte[] buf = new byte[1024];
+
+        private int size;
+
+        private void reset() {
+            size = 0;
+            // 偶发的大消息不让缓冲区一直占着内存
+            if (buf.length > 64 * 1024) {
+                buf = new byte[1024];
+            }
+        }
+
+        private void ensure(int n) {
+            if (size + n > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, size + n));
+            }
+        }
+
+        private void put(int b) {
+            ensure(1);
+            buf[size++] = (byte) b;
+        }
+
+        private void putShort(int v) {
+            ensure(2);
+            buf[size++] = (byte) (v >>> 8);
+            buf[size++] = (byte) v;
+        }
+
+        private void putInt(int v) {
+            ensure(4);
+            buf[size++] = (byte) (v >>> 24);
+            buf[size++] = (byte) (v >>> 16);
+            buf[size++] = (byte) (v >>> 8);
+            buf[size++] = (byte) v;
+        }
+
+        private void putLong(long v) {
+            putInt((int) (v >>> 32));
+            putInt((int) v);
+        }
+
+        private void put(byte[] bytes) {
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buf, size, bytes.length);
+            size += bytes.length;
+        }
+
+        private ByteBuffer toByteBuffer() {
+            return ByteBuffer.wrap(Arrays.copyOf(buf, size));
+        }
+    }
+}
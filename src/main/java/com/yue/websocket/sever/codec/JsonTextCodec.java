@@ -0,0 +1,38 @@
+package com.yue.websocket.sever.codec;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * @ProjectName: spring-boot-websocket
+ * @Package: com.yue.websocket.sever.codec
+ * @ClassName: JsonTextCodec
+ * @Author: YUE
+ * @Description: 默认编解码：JSON文本帧，未指定子协议的客户端使用
+ * @Date: 2026/10/17 20:12
+ * @Version: 1.0
+ */
+public class JsonTextCodec implements MessageCodec {
+
+    public static final String NAME = "json";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean isBinary() {
+        return false;
+    }
+
+    @Override
+    public ByteBuffer encode(String text) {
+        return ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public String decode(ByteBuffer buffer) {
+        return StandardCharsets.UTF_8.decode(buffer).toString();
+    }
+}
@@ -0,0 +1,38 @@
+package com.yue.websocket.sever.codec;
+
+import java.nio.ByteBuffer;
+
+/**
+ * @ProjectName: spring-boot-websocket
+ * @Package: com.yue.websocket.sever.codec
+ * @ClassName: MessageCodec
+ * @Author: YUE
+ * @Description: 消息编解码，客户端通过Sec-WebSocket-Protocol子协议选择；业务层始终使用JSON文本
+ * @Date: 2026/10/17 20:10
+ * @Version: 1.0
+ */
+public interface MessageCodec {
+
+    /**
+     * 子协议名
+     */
+    String getName();
+
+    /**
+     * 是否以二进制帧发送
+     */
+    boolean isBinary();
+
+    /**
+     * 把JSON文本编码为线上格式
+     *
+     * @param text: JSON文本，也可以是普通字符串
+     * @return: 编码后的数据，position为0
+     */
+    ByteBuffer encode(String text);
+
+    /**
+     * 把收到的数据解码为JSON文本
+     */
+    String decode(ByteBuffer buffer);
+}
@@ -0,0 +1,54 @@
+package com.yue.websocket.sever.codec;
+
+import com.yue.websocket.config.WebSocketProperties;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * @ProjectName: spring-boot-websocket
+ * @Package: com.yue.websocket.sever.codec
+ * @ClassName: MessageCodecs
+ * @Author: YUE
+ * @Description: 可用的编解码，按子协议名查找，未协商子协议时使用JSON文本
+ * @Date: 2026/10/17 20:30
+ * @Version: 1.0
+ */
+@Component
+public class MessageCodecs {
+
+    private final MessageCodec defaultCodec = new JsonTextCodec();
+
+    private final CompactBinaryCodec binaryCodec;
+
+    private final Map<String, MessageCodec> codecs = new LinkedHashMap<>();
+
+    public MessageCodecs(WebSocketProperties properties) {
+        this.binaryCodec = new CompactBinaryCodec(
+                Collections.unmodifiableList(properties.getCodec().getDictionary()),
+                properties.getCodec().getMaxDecodeLength());
+        codecs.put(defaultCodec.getName(), defaultCodec);
+        codecs.put(binaryCodec.getName(), binaryCodec);
+    }
+
+    /**
+     * 按协商出的子协议查找编解码
+     *
+     * @param subprotocol: Session.getNegotiatedSubprotocol()
+     * @return: com.yue.websocket.sever.codec.MessageCodec
+     */
+    public MessageCodec resolve(String subprotocol) {
+        if (StringUtils.isEmpty(subprotocol)) {
+            return defaultCodec;
+        }
+        MessageCodec codec = codecs.get(subprotocol);
+        return codec == null ? defaultCodec : codec;
+    }
+
+    public CompactBinaryCodec getBinaryCodec() {
+        return binaryCodec;
+    }
+}
@@ -0,0 +1,110 @@
+package com.yue.websocket.cluster;
+
+import com.yue.websocket.config.WebSocketProperties;
+import com.yue.websocket.sever.OutboundMessage;
+import com.yue.websocket.sever.SessionRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * 用内存中的频道代替Redis，验证一次发布、各节点本地投递以及小消息合并
+ */
+class ClusterBusTest {
+
+    private static final String CHANNEL = "websocket:broadcast";
+
+    /**
+     * 代替Redis频道，记录所有发布的帧
+     */
+    private final List<String> published = new ArrayList<>();
+
+    private SessionRegistry registryA;
+
+    private SessionRegistry registryB;
+
+    private ClusterBus nodeA;
+
+    private ClusterBus nodeB;
+
+    @BeforeEach
+    void setUp() {
+        StringRedisTemplate redis = mock(StringRedisTemplate.class);
+        doAnswer(invocation -> published.add(invocation.getArgument(1)))
+                .when(redis).convertAndSend(eq(CHANNEL), anyString());
+        registryA = mock(SessionRegistry.class);
+        registryB = mock(SessionRegistry.class);
+        nodeA = newNode(redis, registryA, "A");
+        nodeB = newNode(redis, registryB, "B");
+    }
+
+    @AfterEach
+    void tearDown() {
+        nodeA.shutdown();
+        nodeB.shutdown();
+    }
+
+    @Test
+    void batchesMessagesIntoOneFrameAndFansOutOnOtherNode() {
+        nodeA.publish(null, "hello");
+        nodeA.publish("8", "store-8");
+        nodeA.flush();
+
+        assertEquals(1, published.size());
+        verify(registryA).broadcast(any(OutboundMessage.class));
+        verify(registryA).publish(eq("8"), any(OutboundMessage.class));
+
+        receive(nodeB);
+        ArgumentCaptor<OutboundMessage> broadcast = ArgumentCaptor.forClass(OutboundMessage.class);
+        ArgumentCaptor<OutboundMessage> topic = ArgumentCaptor.forClass(OutboundMessage.class);
+        verify(registryB).broadcast(broadcast.capture());
+        verify(registryB).publish(eq("8"), topic.capture());
+        assertEquals("hello", broadcast.getValue().getText());
+        assertEquals("store-8", topic.getValue().getText());
+    }
+
+    @Test
+    void ignoresOwnFrames() {
+        nodeA.publish(null, "hello");
+        nodeA.flush();
+
+        receive(nodeA);
+        verify(registryA, times(1)).broadcast(any(OutboundMessage.class));
+        verify(registryB, never()).broadcast(any(OutboundMessage.class));
+    }
+
+    private void receive(ClusterBus node) {
+        for (String frame : published) {
+            node.onMessage(new DefaultMessage(CHANNEL.getBytes(StandardCharsets.UTF_8),
+                    frame.getBytes(StandardCharsets.UTF_8)), null);
+        }
+    }
+
+    private ClusterBus newNode(StringRedisTemplate redis, SessionRegistry registry, String nodeId) {
+        WebSocketProperties properties = new WebSocketProperties();
+        properties.getCluster().setEnabled(true);
+        properties.getCluster().setNodeId(nodeId);
+        // 合并窗口足够长，由测试手动flush
+        properties.getCluster().setBatchWindowMillis(60000);
+        ClusterBus bus = new ClusterBus(redis, registry, properties);
+        bus.init();
+        return bus;
+    }
+}
@@ -0,0 +1,162 @@
+package com.yue.websocket.cluster;
+
+import com.yue.websocket.config.WebSocketProperties;
+import com.yue.websocket.sever.OutboundMessage;
+import com.yue.websocket.sever.SessionRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 用内存中的hash代替Redis，验证节点各自登记、宕机节点的字段过期以及点对点路由
+ */
+@SuppressWarnings("unchecked")
+class SessionDirectoryTest {
+
+    private static final String KEY = "websocket:directory:8";
+
+    /**
+     * 代替Redis：key -> {field: value}
+     */
+    private final Map<String, Map<Object, Object>> redis = new ConcurrentHashMap<>();
+
+    private StringRedisTemplate template;
+
+    private ClusterBus busA;
+
+    private SessionDirectory nodeA;
+
+    private SessionDirectory nodeB;
+
+    @BeforeEach
+    void setUp() {
+        template = mock(StringRedisTemplate.class);
+        StringRedisConnection connection = mock(StringRedisConnection.class);
+        doAnswer(invocation -> hash(invocation.getArgument(0))
+                .put(invocation.getArgument(1), invocation.getArgument(2)))
+                .when(connection).hSet(anyString(), anyString(), anyString());
+        doAnswer(invocation -> {
+            hash(invocation.getArgument(0)).remove(invocation.<String>getArgument(1));
+            return 1L;
+        }).when(connection).hDel(anyString(), anyString());
+        doAnswer(invocation -> {
+            invocation.<RedisCallback<Object>>getArgument(0).doInRedis(connection);
+            return Collections.emptyList();
+        }).when(template).executePipelined(any(RedisCallback.class));
+        HashOperations<String, Object, Object> hashOps = mock(HashOperations.class);
+        doAnswer(invocation -> new ConcurrentHashMap<>(hash(invocation.getArgument(0))))
+                .when(hashOps).entries(anyString());
+        doAnswer(invocation -> {
+            Object[] fields = invocation.getArguments();
+            for (int i = 1; i < fields.length; i++) {
+                hash((String) fields[0]).remove(fields[i]);
+            }
+            return (long) fields.length - 1;
+        }).when(hashOps).delete(anyString(), any());
+        doReturn(hashOps).when(template).opsForHash();
+        when(connection.expire(anyString(), anyLong())).thenReturn(true);
+
+        busA = newBus("A");
+        nodeA = newDirectory(busA);
+        nodeB = newDirectory(newBus("B"));
+    }
+
+    @Test
+    void nodesWithSameSessionIdDoNotOverwriteEachOther() {
+        // Tomcat会话ID按节点计数，不同节点会出现相同的ID
+        nodeA.register("8", "0");
+        nodeB.register("8", "0");
+        nodeA.flush();
+        nodeB.flush();
+        assertEquals(new HashSet<>(Arrays.asList("A", "B")), nodeA.lookup("8"));
+
+        nodeB.unregister("8", "0");
+        nodeB.flush();
+        assertEquals(Collections.singleton("A"), nodeA.lookup("8"));
+    }
+
+    @Test
+    void firstSessionIsVisibleWithoutWaitingForFlush() {
+        nodeA.register("8", "0");
+        // 刚连上就能被其他节点路由到
+        assertEquals(Collections.singleton("A"), nodeB.lookup("8"));
+
+        nodeA.unregister("8", "0");
+        nodeA.register("8", "1");
+        // 重新登记同步写入时带上之前排队的注销，顺序不乱
+        assertEquals(Collections.singleton("A"), nodeB.lookup("8"));
+    }
+
+    @Test
+    void keepsNodeUntilItsLastSessionLeaves() {
+        nodeA.register("8", "0");
+        nodeA.register("8", "1");
+        nodeA.flush();
+        nodeA.unregister("8", "0");
+        nodeA.flush();
+        assertEquals(Collections.singleton("A"), nodeB.lookup("8"));
+
+        nodeA.unregister("8", "1");
+        nodeA.flush();
+        assertEquals(Collections.emptySet(), nodeB.lookup("8"));
+    }
+
+    @Test
+    void ignoresAndPrunesCrashedNode() {
+        nodeA.register("8", "0");
+        nodeA.flush();
+        // 节点B宕机前留下的字段，心跳早已停止
+        long stale = System.currentTimeMillis() - 61_000;
+        hash(KEY).put("B", String.valueOf(stale));
+        hash(KEY).put("C", "old-format");
+
+        assertEquals(Collections.singleton("A"), nodeA.lookup("8"));
+        assertEquals(Collections.singleton("A"), hash(KEY).keySet());
+
+        // 只路由到存活节点
+        SessionRegistry registry = mock(SessionRegistry.class);
+        SessionDirectory router = new SessionDirectory(template, registry, busA, properties("A"));
+        router.sendTo("8", "hi");
+        verify(registry).publish(eq("8"), any(OutboundMessage.class));
+    }
+
+    private Map<Object, Object> hash(String key) {
+        return redis.computeIfAbsent(key, k -> new ConcurrentHashMap<>());
+    }
+
+    private ClusterBus newBus(String nodeId) {
+        return new ClusterBus(template, mock(SessionRegistry.class), properties(nodeId));
+    }
+
+    private SessionDirectory newDirectory(ClusterBus bus) {
+        // 不调用init，由测试手动flush
+        return new SessionDirectory(template, mock(SessionRegistry.class), bus, properties(bus.getNodeId()));
+    }
+
+    private WebSocketProperties properties(String nodeId) {
+        WebSocketProperties properties = new WebSocketProperties();
+        properties.getCluster().setEnabled(true);
+        properties.getCluster().setNodeId(nodeId);
+        return properties;
+    }
+}
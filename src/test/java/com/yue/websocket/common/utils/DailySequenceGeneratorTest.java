@@ -0,0 +1,141 @@
+package com.yue.websocket.common.utils;
+
+import com.yue.websocket.config.WebSocketProperties;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DailySequenceGeneratorTest {
+
+    /**
+     * 代替Redis中INCRBY/DECRBY的计数
+     */
+    private final AtomicLong counter = new AtomicLong();
+
+    @SuppressWarnings("unchecked")
+    private RedisTemplate<Serializable, Object> redisTemplate() {
+        RedisTemplate<Serializable, Object> redisTemplate = mock(RedisTemplate.class);
+        when(allocate(redisTemplate)).thenAnswer(invocation -> {
+            if (invocation.<List<?>>getArgument(3).size() == 2) {
+                return counter.addAndGet(Long.parseLong(invocation.getArgument(4)));
+            }
+            // 归还：计数仍是号段最大值时才减回去
+            long max = Long.parseLong(invocation.getArgument(4));
+            long unused = Long.parseLong(invocation.getArgument(5));
+            return counter.compareAndSet(max, max - unused) ? max - unused : -1L;
+        });
+        return redisTemplate;
+    }
+
+    /**
+     * 匹配号段分配的Lua调用
+     */
+    private static Long allocate(RedisTemplate<Serializable, Object> redisTemplate) {
+        return redisTemplate.execute(ArgumentMatchers.<RedisScript<Long>>any(),
+                ArgumentMatchers.<RedisSerializer<?>>any(), ArgumentMatchers.<RedisSerializer<Long>>any(),
+                anyList(), any(), any());
+    }
+
+    @Test
+    void allocatesOneSegmentPerStep() {
+        WebSocketProperties properties = new WebSocketProperties();
+        properties.getSequence().setStep(10);
+        RedisTemplate<Serializable, Object> redisTemplate = redisTemplate();
+        DailySequenceGenerator generator = new DailySequenceGenerator(redisTemplate, properties);
+
+        for (long expected = 1; expected <= 25; expected++) {
+            assertEquals(expected, generator.next("order"));
+        }
+        allocate(verify(redisTemplate, times(3)));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void passesLegacyKeyForSeedingOnRolloutDay() {
+        WebSocketProperties properties = new WebSocketProperties();
+        RedisTemplate<Serializable, Object> redisTemplate = redisTemplate();
+        new DailySequenceGenerator(redisTemplate, properties).next("order");
+
+        ArgumentCaptor<List<Serializable>> keys = ArgumentCaptor.forClass(List.class);
+        verify(redisTemplate).execute(ArgumentMatchers.<RedisScript<Long>>any(),
+                ArgumentMatchers.<RedisSerializer<?>>any(), ArgumentMatchers.<RedisSerializer<Long>>any(),
+                keys.capture(), any(), any());
+        assertEquals(Arrays.asList("order:" + LocalDate.now().format(DateTimeFormatter.ofPattern("yyyyMMdd")), "order"),
+                keys.getValue());
+    }
+
+    @Test
+    void releasesUnusedTailOfSegmentOnShutdown() {
+        WebSocketProperties properties = new WebSocketProperties();
+        properties.getSequence().setStep(10);
+        DailySequenceGenerator first = new DailySequenceGenerator(redisTemplate(), properties);
+        for (int i = 0; i < 3; i++) {
+            first.next("order");
+        }
+        first.release();
+
+        // 重启后接着已发出的号码分配，不跳过未用完的号段
+        DailySequenceGenerator restarted = new DailySequenceGenerator(redisTemplate(), properties);
+        assertEquals(4, restarted.next("order"));
+    }
+
+    @Test
+    void segmentTakenByAnotherNodeIsNotReleased() {
+        WebSocketProperties properties = new WebSocketProperties();
+        properties.getSequence().setStep(10);
+        DailySequenceGenerator nodeA = new DailySequenceGenerator(redisTemplate(), properties);
+        DailySequenceGenerator nodeB = new DailySequenceGenerator(redisTemplate(), properties);
+        nodeA.next("order");
+        assertEquals(11, nodeB.next("order"));
+        nodeA.release();
+        assertEquals(20, counter.get());
+    }
+
+    @Test
+    void concurrentCallersNeverShareAnId() throws InterruptedException {
+        WebSocketProperties properties = new WebSocketProperties();
+        properties.getSequence().setStep(100);
+        DailySequenceGenerator generator = new DailySequenceGenerator(redisTemplate(), properties);
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        int threads = 8;
+        int perThread = 5000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            executor.execute(() -> {
+                for (int j = 0; j < perThread; j++) {
+                    ids.add(generator.next("order"));
+                }
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        executor.shutdown();
+        assertEquals(threads * perThread, ids.size());
+    }
+}
@@ -0,0 +1,112 @@
+package com.yue.websocket.common.utils;
+
+import com.yue.websocket.config.WebSocketProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NearCacheTest {
+
+    private NearCache nearCache;
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        WebSocketProperties properties = new WebSocketProperties();
+        properties.getNearCache().setEnabled(true);
+        properties.getNearCache().setPrefixes(Collections.singletonList("store:config:"));
+        nearCache = new NearCache(properties);
+    }
+
+    @Test
+    void onlyConfiguredPrefixesAreCached() {
+        assertTrue(nearCache.accepts("store:config:8"));
+        assertFalse(nearCache.accepts("order:1"));
+    }
+
+    @Test
+    void secondReadIsServedLocally() {
+        assertEquals("v1", nearCache.get("store:config:8", () -> load("v1")));
+        assertEquals("v1", nearCache.get("store:config:8", () -> load("v2")));
+        assertEquals(1, loads.get());
+        assertEquals(1L, nearCache.stats().get("store:config:").get("hits"));
+        assertEquals(1L, nearCache.stats().get("store:config:").get("misses"));
+    }
+
+    @Test
+    void missingValuesAreCachedToo() {
+        assertNull(nearCache.get("store:config:9", () -> load(null)));
+        assertNull(nearCache.get("store:config:9", () -> load("v1")));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void keyspaceEventInvalidatesValueAndHash() {
+        nearCache.get("store:config:8", () -> load("v1"));
+        nearCache.hashGet("store:config:8", "name", () -> load("h1"));
+
+        nearCache.onMessage(new DefaultMessage("__keyspace@1__:store:config:8".getBytes(StandardCharsets.UTF_8),
+                "set".getBytes(StandardCharsets.UTF_8)), null);
+
+        assertEquals("v2", nearCache.get("store:config:8", () -> load("v2")));
+        assertEquals("h2", nearCache.hashGet("store:config:8", "name", () -> load("h2")));
+    }
+
+    @Test
+    void invalidationDuringLoadIsNotCached() {
+        nearCache.get("store:config:8", () -> {
+            nearCache.invalidate("store:config:8");
+            return load("stale");
+        });
+        assertEquals("fresh", nearCache.get("store:config:8", () -> load("fresh")));
+    }
+
+    @Test
+    void invalidationOfOtherKeyDoesNotBlockCaching() {
+        nearCache.get("store:config:8", () -> {
+            nearCache.invalidate("store:config:9");
+            return load("v1");
+        });
+        assertEquals("v1", nearCache.get("store:config:8", () -> load("v2")));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void staleValueLoadedDuringWriteIsDropped() {
+        // 写之前已失效，读在写入Redis前加载到旧值并回填
+        nearCache.invalidate("store:config:8");
+        nearCache.hashGet("store:config:8", "name", () -> load("old"));
+        // 写入Redis后再失效一次
+        nearCache.invalidate("store:config:8");
+        assertEquals("new", nearCache.hashGet("store:config:8", "name", () -> load("new")));
+    }
+
+    @Test
+    void largeHashCountsEveryField() {
+        WebSocketProperties properties = new WebSocketProperties();
+        properties.getNearCache().setEnabled(true);
+        properties.getNearCache().setPrefixes(Collections.singletonList("store:config:"));
+        properties.getNearCache().setMaximumSize(3);
+        NearCache small = new NearCache(properties);
+        for (int i = 0; i < 5; i++) {
+            small.hashGet("store:config:8", "f" + i, () -> "v");
+        }
+        // 容量按字段计，一张hash的字段数超过容量时会被淘汰
+        assertTrue(small.hashWeight() <= 3);
+    }
+
+    private Object load(Object value) {
+        loads.incrementAndGet();
+        return value;
+    }
+}
@@ -0,0 +1,91 @@
+package com.yue.websocket.common.utils;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisScriptingCommands;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RedisBatchTest {
+
+    private static final String NOSCRIPT = "NOSCRIPT No matching script. Please use EVAL.";
+
+    private final RedisConnection connection = mock(RedisConnection.class);
+
+    private final RedisScriptingCommands scripting = mock(RedisScriptingCommands.class);
+
+    @Test
+    void sendsOnlyShaAndFallsBackToEvalOnNoScript() {
+        when(connection.scriptingCommands()).thenReturn(scripting);
+        when(scripting.evalSha(any(String.class), eq(ReturnType.INTEGER), eq(1), (byte[][]) any()))
+                .thenReturn(1L)
+                .thenThrow(new InvalidDataAccessApiUsageException(NOSCRIPT));
+        when(scripting.eval(any(byte[].class), eq(ReturnType.INTEGER), eq(1), (byte[][]) any())).thenReturn(2L);
+
+        assertEquals(1L, RedisBatch.writeAndExpireOrLoad(connection, RedisBatch.HSET, key("k"), 60, key("f"), key("v")));
+        verify(scripting, never()).eval(any(byte[].class), any(ReturnType.class), anyInt(), (byte[][]) any());
+
+        assertEquals(2L, RedisBatch.writeAndExpireOrLoad(connection, RedisBatch.HSET, key("k"), 60, key("f"), key("v")));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void loadsScriptBeforePipelineAndKeepsQueueOrder() {
+        RedisTemplate<Serializable, Object> template = mock(RedisTemplate.class);
+        doReturn(new StringRedisSerializer()).when(template).getKeySerializer();
+        doReturn(new StringRedisSerializer()).when(template).getValueSerializer();
+        doReturn(new StringRedisSerializer()).when(template).getHashKeySerializer();
+        doReturn(new StringRedisSerializer()).when(template).getHashValueSerializer();
+        doAnswer(invocation -> invocation.<RedisCallback<Object>>getArgument(0).doInRedis(connection))
+                .when(template).execute(any(RedisCallback.class));
+        doAnswer(invocation -> {
+            invocation.<RedisCallback<Object>>getArgument(0).doInRedis(connection);
+            return Arrays.asList(1L, 1L, "v");
+        }).when(template).executePipelined(any(RedisCallback.class), any(RedisSerializer.class));
+        when(connection.scriptingCommands()).thenReturn(scripting);
+        // Redis重启后脚本缓存已清空
+        when(scripting.scriptExists(RedisBatch.WRITE_AND_EXPIRE.getSha1())).thenReturn(Collections.singletonList(false));
+        RedisUtils redisUtils = mock(RedisUtils.class);
+        when(redisUtils.getRedisTemplate()).thenReturn(template);
+
+        List<Object> results = new RedisBatch(redisUtils).hashSet("h", "f", "v", 60).del("h").get("a").execute();
+
+        assertEquals(Arrays.asList(1L, 1L, "v"), results);
+        InOrder inOrder = inOrder(scripting, template, connection);
+        inOrder.verify(scripting).scriptLoad(any(byte[].class));
+        inOrder.verify(template).executePipelined(any(RedisCallback.class), any(RedisSerializer.class));
+        // 先写hash再删除，删除后的hash不会被补发的写操作重新创建
+        inOrder.verify(scripting).evalSha(any(String.class), eq(ReturnType.INTEGER), eq(1), (byte[][]) any());
+        inOrder.verify(connection).del(key("h"));
+        inOrder.verify(connection).get(key("a"));
+        // 写过的key在本地缓存中失效，只读的key不受影响
+        verify(redisUtils).invalidateNearCache("h");
+        verify(redisUtils, never()).invalidateNearCache("a");
+    }
+
+    private static byte[] key(String value) {
+        return value.getBytes();
+    }
+}
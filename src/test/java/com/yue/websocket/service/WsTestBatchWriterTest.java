@@ -0,0 +1,160 @@
+package com.yue.websocket.service;
+
+import com.yue.websocket.config.WebSocketProperties;
+import com.yue.websocket.mapper.WebSocketMapper;
+import org.apache.ibatis.builder.xml.XMLMapperBuilder;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class WsTestBatchWriterTest {
+
+    private final WebSocketMapper mapper = mock(WebSocketMapper.class);
+
+    /**
+     * 每次insertBatch写入的行数
+     */
+    private final List<Integer> batches = Collections.synchronizedList(new ArrayList<>());
+
+    private WsTestBatchWriter writer;
+
+    private WsTestBatchWriter newWriter(int batchSize, long flushMillis) {
+        WebSocketProperties properties = new WebSocketProperties();
+        properties.getInsert().setBatchSize(batchSize);
+        properties.getInsert().setFlushMillis(flushMillis);
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(mock(TransactionStatus.class));
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        doAnswer(invocation -> {
+            batches.add(invocation.<List<?>>getArgument(0).size());
+            return null;
+        }).when(mapper).insertBatch(anyList());
+        writer = new WsTestBatchWriter(mapper, transactionTemplate, properties);
+        writer.start();
+        return writer;
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (writer != null) {
+            writer.shutdown();
+        }
+    }
+
+    @Test
+    void flushesWhenBatchIsFull() throws Exception {
+        newWriter(3, 1000);
+        List<CompletableFuture<Void>> futures = submit(3);
+        // 攒满即写入，不等攒批时间
+        for (CompletableFuture<Void> future : futures) {
+            future.get(500, TimeUnit.MILLISECONDS);
+        }
+        assertEquals(Collections.singletonList(3), batches);
+    }
+
+    @Test
+    void flushesPartialBatchAfterTimeout() throws Exception {
+        newWriter(100, 50);
+        List<CompletableFuture<Void>> futures = submit(2);
+        for (CompletableFuture<Void> future : futures) {
+            future.get(1, TimeUnit.SECONDS);
+        }
+        assertEquals(Collections.singletonList(2), batches);
+    }
+
+    @Test
+    void shutdownWritesQueuedRowsAndRejectsNewOnes() throws Exception {
+        newWriter(100, 200);
+        List<CompletableFuture<Void>> futures = submit(5);
+        writer.shutdown();
+        for (CompletableFuture<Void> future : futures) {
+            assertTrue(future.isDone());
+            future.get();
+        }
+        assertEquals(5, batches.stream().mapToInt(Integer::intValue).sum());
+
+        ExecutionException rejected = assertThrows(ExecutionException.class, () -> submit(1).get(0).get());
+        assertTrue(rejected.getCause() instanceof RejectedExecutionException);
+    }
+
+    @Test
+    void interruptFailsPendingRowsInsteadOfDroppingThem() throws Exception {
+        newWriter(100, 5000);
+        List<CompletableFuture<Void>> futures = submit(2);
+        // 等写入线程取到第一条，正在攒批
+        verify(mapper, after(100).never()).insertBatch(anyList());
+        writer.getWorker().interrupt();
+        for (CompletableFuture<Void> future : futures) {
+            ExecutionException failed = assertThrows(ExecutionException.class, () -> future.get(1, TimeUnit.SECONDS));
+            assertTrue(failed.getCause() instanceof InterruptedException);
+        }
+        writer.getWorker().join(1000);
+        assertFalse(writer.getWorker().isAlive());
+        assertTrue(batches.isEmpty());
+    }
+
+    @Test
+    void batchInsertUsesDefaultForEmptyFields() throws Exception {
+        Configuration configuration = new Configuration();
+        String resource = "mapper/WebSocketMapper.xml";
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream(resource)) {
+            new XMLMapperBuilder(in, configuration, resource, configuration.getSqlFragments()).parse();
+        }
+        Map<String, Object> full = row("M01", "8");
+        Map<String, Object> empty = row("", null);
+        Map<String, Object> parameter = new HashMap<>();
+        parameter.put("list", Arrays.asList(full, empty));
+        BoundSql sql = configuration.getMappedStatement(WebSocketMapper.class.getName() + ".insertBatch")
+                .getBoundSql(parameter);
+        String normalized = sql.getSql().replaceAll("\\s+", " ");
+
+        // 第一行只有两个字段有值，第二行全部为空
+        assertEquals(2, sql.getParameterMappings().size());
+        assertEquals(8 + 6, normalized.split("DEFAULT", -1).length - 1);
+        assertTrue(normalized.contains("( ?, DEFAULT, ?, DEFAULT,"), normalized);
+    }
+
+    private List<CompletableFuture<Void>> submit(int rows) {
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            futures.add(writer.submit(row("M01", String.valueOf(i))));
+        }
+        return futures;
+    }
+
+    private static Map<String, Object> row(String merCode, String storeId) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("merCode", merCode);
+        row.put("storeId", storeId);
+        return row;
+    }
+}
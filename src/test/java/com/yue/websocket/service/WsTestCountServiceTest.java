@@ -0,0 +1,79 @@
+package com.yue.websocket.service;
+
+import com.yue.websocket.common.utils.RedisUtils;
+import com.yue.websocket.config.WebSocketProperties;
+import com.yue.websocket.mapper.WebSocketMapper;
+import com.yue.websocket.sever.StateSync;
+import com.yue.websocket.sever.WebSocketServer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class WsTestCountServiceTest {
+
+    private static final String COUNT_KEY = "websocket:ws_test:count";
+
+    private final WebSocketMapper mapper = mock(WebSocketMapper.class);
+
+    private final RedisUtils redisUtils = mock(RedisUtils.class);
+
+    private final StateSync stateSync = mock(StateSync.class);
+
+    private WsTestCountService service;
+
+    @BeforeEach
+    void setUp() {
+        WebSocketProperties properties = new WebSocketProperties();
+        properties.getCluster().setEnabled(true);
+        properties.getCount().setStateSync(true);
+        service = new WsTestCountService(mapper, mock(WebSocketServer.class), redisUtils, stateSync, properties);
+        when(mapper.selectCount()).thenReturn(10);
+        when(redisUtils.set(COUNT_KEY, 10L)).thenReturn(true);
+        when(redisUtils.getStrValue(COUNT_KEY)).thenReturn("10");
+        service.init();
+    }
+
+    @Test
+    void startupOverwritesStaleSharedCount() {
+        // 重启前Redis中的计数已漂移，启动时以数据库为准
+        verify(redisUtils).set(COUNT_KEY, 10L);
+        verify(redisUtils, never()).setIfAbsent(any(), any());
+        assertEquals(10, service.getCount());
+    }
+
+    @Test
+    void pushesCountChangedByOtherNode() {
+        service.pushIfChanged();
+        verify(stateSync).update(StateSync.GLOBAL, Collections.singletonMap("count", 10L));
+
+        // 其他节点新增后只有Redis计数变化，本节点没有收到新增事件
+        when(redisUtils.getStrValue(COUNT_KEY)).thenReturn("12");
+        service.pushIfChanged();
+        verify(stateSync).update(StateSync.GLOBAL, Collections.singletonMap("count", 12L));
+        verify(stateSync, times(2)).update(eq(StateSync.GLOBAL), any());
+    }
+
+    @Test
+    void redisFailureAfterCommitTriggersResync() {
+        when(redisUtils.incr(COUNT_KEY, 2)).thenThrow(new RuntimeException("redis down"));
+        // 不能把异常抛回给已提交的新增
+        service.onInserted(new WsTestInsertedEvent(this, 2));
+
+        when(mapper.selectCount()).thenReturn(12);
+        when(redisUtils.set(COUNT_KEY, 12L)).thenReturn(true);
+        when(redisUtils.getStrValue(COUNT_KEY)).thenReturn("12");
+        service.pushIfChanged();
+        verify(redisUtils).set(COUNT_KEY, 12L);
+        assertEquals(12, service.getCount());
+    }
+}
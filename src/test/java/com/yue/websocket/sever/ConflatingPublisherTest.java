@@ -0,0 +1,85 @@
+package com.yue.websocket.sever;
+
+import com.yue.websocket.cluster.ClusterBus;
+import com.yue.websocket.config.WebSocketProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class ConflatingPublisherTest {
+
+    private final ClusterBus clusterBus = mock(ClusterBus.class);
+
+    private ConflatingPublisher publisher;
+
+    @AfterEach
+    void tearDown() {
+        publisher.shutdown();
+    }
+
+    @Test
+    void deliversOnlyLatestValuePerTopic() {
+        WebSocketProperties properties = new WebSocketProperties();
+        // 窗口足够长，由测试手动触发flush
+        properties.getConflation().setWindowMillis(60_000);
+        publisher = new ConflatingPublisher(clusterBus, properties);
+
+        for (int i = 1; i <= 100; i++) {
+            publisher.publish("8", "count=" + i);
+        }
+        publisher.publish(null, "a");
+        publisher.publish(null, "b");
+        verify(clusterBus, never()).publish(any(), anyString());
+
+        publisher.flush();
+        verify(clusterBus).publish("8", "count=100");
+        verify(clusterBus).publish(null, "b");
+        verify(clusterBus, times(2)).publish(any(), anyString());
+        assertEquals(100, publisher.getConflated());
+
+        publisher.publish("8", "count=101");
+        publisher.flush();
+        verify(clusterBus).publish("8", "count=101");
+    }
+
+    @Test
+    void flushedTopicsDoNotStayResident() {
+        WebSocketProperties properties = new WebSocketProperties();
+        properties.getConflation().setWindowMillis(60_000);
+        publisher = new ConflatingPublisher(clusterBus, properties);
+
+        for (int i = 0; i < 1000; i++) {
+            publisher.publish("store-" + i, "v");
+        }
+        assertEquals(1000, publisher.getSlotCount());
+        publisher.flush();
+        assertEquals(0, publisher.getSlotCount());
+        verify(clusterBus, times(1000)).publish(anyString(), anyString());
+
+        // 退役后再发布的主题照常合并发出
+        publisher.publish("store-1", "a");
+        publisher.publish("store-1", "b");
+        publisher.flush();
+        verify(clusterBus).publish("store-1", "b");
+        verify(clusterBus, never()).publish("store-1", "a");
+    }
+
+    @Test
+    void zeroWindowPublishesDirectly() {
+        WebSocketProperties properties = new WebSocketProperties();
+        properties.getConflation().setWindowMillis(0);
+        publisher = new ConflatingPublisher(clusterBus, properties);
+
+        publisher.publish("8", "a");
+        publisher.publish("8", "b");
+        verify(clusterBus).publish("8", "a");
+        verify(clusterBus).publish("8", "b");
+    }
+}
@@ -0,0 +1,50 @@
+package com.yue.websocket.sever;
+
+import com.yue.websocket.config.WebSocketProperties;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class HandshakeAdmissionTest {
+
+    private final SessionRegistry registry = mock(SessionRegistry.class);
+
+    private HandshakeAdmission admission(WebSocketProperties properties) {
+        return new HandshakeAdmission(properties, registry, WebSocketMetrics.noop());
+    }
+
+    @Test
+    void limitsReconnectStormPerParamAndIp() {
+        WebSocketProperties properties = new WebSocketProperties();
+        WebSocketProperties.Admission config = properties.getAdmission();
+        config.setParamPermitsPerSecond(0.001);
+        config.setParamBurst(2);
+        config.setIpPermitsPerSecond(0.001);
+        config.setIpBurst(3);
+        HandshakeAdmission admission = admission(properties);
+
+        // JSON参数按storeId限流，与原始字符串无关
+        assertNull(admission.admit("10.0.0.1", "{\"storeId\":\"8\",\"n\":1}"));
+        assertNull(admission.admit("10.0.0.1", "{\"storeId\":\"8\",\"n\":2}"));
+        assertEquals(HandshakeAdmission.Rejection.PARAM, admission.admit("10.0.0.2", "8"));
+
+        assertEquals(HandshakeAdmission.Rejection.PARAM, admission.admit("10.0.0.1", "8"));
+        assertEquals(HandshakeAdmission.Rejection.IP, admission.admit("10.0.0.1", "9"));
+        assertNull(admission.admit("10.0.0.3", "9"));
+    }
+
+    @Test
+    void rejectsWhenSessionCapReached() {
+        WebSocketProperties properties = new WebSocketProperties();
+        properties.getAdmission().setMaxSessions(2);
+        HandshakeAdmission admission = admission(properties);
+
+        when(registry.size()).thenReturn(1);
+        assertNull(admission.admit("10.0.0.1", "8"));
+        when(registry.size()).thenReturn(2);
+        assertEquals(HandshakeAdmission.Rejection.SESSIONS, admission.admit("10.0.0.1", "9"));
+    }
+}
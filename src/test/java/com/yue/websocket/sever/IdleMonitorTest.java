@@ -0,0 +1,107 @@
+package com.yue.websocket.sever;
+
+import com.yue.websocket.config.WebSocketProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.websocket.CloseReason;
+import javax.websocket.RemoteEndpoint;
+import javax.websocket.Session;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class IdleMonitorTest {
+
+    private IdleMonitor monitor;
+
+    @BeforeEach
+    void setUp() {
+        monitor = new IdleMonitor(properties());
+        monitor.start();
+    }
+
+    private WebSocketProperties properties() {
+        WebSocketProperties properties = new WebSocketProperties();
+        WebSocketProperties.Heartbeat heartbeat = properties.getHeartbeat();
+        heartbeat.setTickMillis(10);
+        heartbeat.setWheelSize(8);
+        heartbeat.setIdleTimeoutMillis(200);
+        heartbeat.setPongTimeoutMillis(100);
+        return properties;
+    }
+
+    @AfterEach
+    void tearDown() {
+        monitor.shutdown();
+    }
+
+    @Test
+    void pingsThenClosesSilentSession() throws Exception {
+        Session session = session("1");
+        monitor.watch(new SessionSender(session, 4, OverflowPolicy.DROP_OLDEST));
+
+        verify(session.getAsyncRemote(), timeout(2000)).sendPing(any(ByteBuffer.class));
+        verify(session, timeout(2000)).close(any(CloseReason.class));
+    }
+
+    @Test
+    void activeSessionIsNotPinged() throws Exception {
+        Session session = session("2");
+        SessionSender sender = new SessionSender(session, 4, OverflowPolicy.DROP_OLDEST);
+        monitor.watch(sender);
+        long end = System.currentTimeMillis() + 600;
+        while (System.currentTimeMillis() < end) {
+            sender.touch();
+            Thread.sleep(20);
+        }
+        verify(session.getAsyncRemote(), never()).sendPing(any(ByteBuffer.class));
+
+        // 停止活动后仍会被检测到
+        verify(session.getAsyncRemote(), timeout(2000)).sendPing(any(ByteBuffer.class));
+        sender.touch();
+        verify(session, after(150).never()).close(any(CloseReason.class));
+    }
+
+    @Test
+    void retriesWhenIoPoolRejects() throws Exception {
+        monitor.shutdown();
+        // io队列满：ping和关闭各被拒绝一次
+        ExecutorService io = mock(ExecutorService.class);
+        RejectedExecutionException full = new RejectedExecutionException("full");
+        doThrow(full).doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).doThrow(full).doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(io).execute(any(Runnable.class));
+        monitor = new IdleMonitor(properties(), WebSocketMetrics.noop(), io);
+        monitor.start();
+
+        Session session = session("3");
+        monitor.watch(new SessionSender(session, 4, OverflowPolicy.DROP_OLDEST));
+        verify(session.getAsyncRemote(), timeout(2000)).sendPing(any(ByteBuffer.class));
+        verify(session, timeout(2000)).close(any(CloseReason.class));
+    }
+
+    private Session session(String id) {
+        Session session = mock(Session.class);
+        RemoteEndpoint.Async async = mock(RemoteEndpoint.Async.class);
+        when(session.getId()).thenReturn(id);
+        when(session.isOpen()).thenReturn(true);
+        when(session.getAsyncRemote()).thenReturn(async);
+        return session;
+    }
+}
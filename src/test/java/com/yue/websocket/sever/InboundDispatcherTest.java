@@ -0,0 +1,82 @@
+package com.yue.websocket.sever;
+
+import com.yue.websocket.config.WebSocketProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InboundDispatcherTest {
+
+    private InboundDispatcher dispatcher;
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.shutdown();
+    }
+
+    @Test
+    void keepsPerSessionOrder() throws InterruptedException {
+        WebSocketProperties properties = new WebSocketProperties();
+        properties.getDispatch().setWorkers(4);
+        properties.getDispatch().setMaxQueuedPerSession(10000);
+        dispatcher = new InboundDispatcher(properties);
+
+        int sessions = 8;
+        int messages = 1000;
+        Map<String, List<Integer>> received = new ConcurrentHashMap<>();
+        CountDownLatch done = new CountDownLatch(sessions * messages);
+        for (int i = 0; i < messages; i++) {
+            for (int s = 0; s < sessions; s++) {
+                String id = String.valueOf(s);
+                int seq = i;
+                assertTrue(dispatcher.dispatch(id, () -> {
+                    received.computeIfAbsent(id, k -> Collections.synchronizedList(new ArrayList<>())).add(seq);
+                    done.countDown();
+                }));
+            }
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        for (List<Integer> list : received.values()) {
+            for (int i = 0; i < messages; i++) {
+                assertEquals(i, list.get(i));
+            }
+        }
+        assertEquals(0, dispatcher.getInFlight());
+    }
+
+    @Test
+    void rejectsWhenSessionQueueIsFull() throws InterruptedException {
+        WebSocketProperties properties = new WebSocketProperties();
+        properties.getDispatch().setWorkers(1);
+        properties.getDispatch().setMaxQueuedPerSession(2);
+        dispatcher = new InboundDispatcher(properties);
+
+        CountDownLatch release = new CountDownLatch(1);
+        assertTrue(dispatcher.dispatch("1", () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        assertTrue(dispatcher.dispatch("1", () -> {
+        }));
+        assertFalse(dispatcher.dispatch("1", () -> {
+        }));
+        // 其他会话不受影响
+        assertTrue(dispatcher.dispatch("2", () -> {
+        }));
+        release.countDown();
+    }
+}
@@ -0,0 +1,169 @@
+package com.yue.websocket.sever;
+
+import com.alibaba.fastjson.JSONObject;
+import com.yue.websocket.cluster.ClusterBus;
+import com.yue.websocket.config.WebSocketProperties;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.core.StreamOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@SuppressWarnings("unchecked")
+class ReliableDeliveryTest {
+
+    private final SessionRegistry registry = mock(SessionRegistry.class);
+
+    private final ClusterBus clusterBus = mock(ClusterBus.class);
+
+    private ReliableDelivery newDelivery(int ringCapacity) {
+        WebSocketProperties properties = new WebSocketProperties();
+        properties.getReliable().setRingCapacity(ringCapacity);
+        return new ReliableDelivery(registry, clusterBus, mock(StringRedisTemplate.class), properties);
+    }
+
+    @Test
+    void numbersMessagesPerTopic() {
+        ReliableDelivery delivery = newDelivery(1024);
+        assertEquals(1, delivery.publish("8", "{\"a\":1}"));
+        assertEquals(2, delivery.publish("8", "b"));
+        assertEquals(1, delivery.publish("9", "c"));
+
+        ArgumentCaptor<OutboundMessage> captor = ArgumentCaptor.forClass(OutboundMessage.class);
+        verify(registry, times(2)).publish(eq("8"), captor.capture());
+        JSONObject first = JSONObject.parseObject(captor.getAllValues().get(0).getText());
+        assertEquals("msg", first.getString("type"));
+        assertEquals(1, first.getLongValue("seq"));
+        assertEquals(delivery.getEpoch(), first.getString("epoch"));
+        assertEquals(1, first.getJSONObject("data").getIntValue("a"));
+        verify(clusterBus).forward("8", "b", true);
+    }
+
+    @Test
+    void replaysMessagesAfterAckedSeqPerClient() {
+        ReliableDelivery delivery = newDelivery(1024);
+        for (int i = 1; i <= 40; i++) {
+            delivery.publish("8", "m" + i);
+        }
+        // 同一门店的两个客户端各自确认
+        delivery.ack("c1", "8", 35);
+        delivery.ack("c2", "8", 38);
+
+        SessionSender first = mock(SessionSender.class);
+        Runnable subscription = mock(Runnable.class);
+        delivery.onOpen(first, "{\"storeId\":\"8\",\"clientId\":\"c1\"}", "8", subscription);
+        assertReplayed(first, 36, 40);
+        verify(subscription).run();
+
+        SessionSender second = mock(SessionSender.class);
+        delivery.onOpen(second, "{\"storeId\":\"8\",\"clientId\":\"c2\"}", "8", mock(Runnable.class));
+        assertReplayed(second, 39, 40);
+
+        // 没有clientId的连接不按其他客户端的确认位置补发
+        SessionSender anonymous = mock(SessionSender.class);
+        delivery.ack(null, "8", 20);
+        delivery.onOpen(anonymous, "8", "8", mock(Runnable.class));
+        verify(anonymous, never()).send(any());
+    }
+
+    @Test
+    void subscribesBeforeReplayUnderRingLock() {
+        ReliableDelivery delivery = newDelivery(1024);
+        for (int i = 1; i <= 5; i++) {
+            delivery.publish("8", "m" + i);
+        }
+        SessionSender sender = mock(SessionSender.class);
+        Runnable subscription = mock(Runnable.class);
+        delivery.resume(sender, "8", delivery.getEpoch(), 2, subscription);
+
+        InOrder inOrder = inOrder(subscription, sender);
+        inOrder.verify(subscription).run();
+        inOrder.verify(sender, times(3)).send(any());
+    }
+
+    @Test
+    void replaysUntrackedCopies() {
+        ReliableDelivery delivery = newDelivery(1024);
+        delivery.publish("8", "m1");
+        ArgumentCaptor<OutboundMessage> published = ArgumentCaptor.forClass(OutboundMessage.class);
+        verify(registry).publish(eq("8"), published.capture());
+
+        SessionSender sender = mock(SessionSender.class);
+        delivery.resume(sender, "8", delivery.getEpoch(), 0, mock(Runnable.class));
+        ArgumentCaptor<OutboundMessage> replayed = ArgumentCaptor.forClass(OutboundMessage.class);
+        verify(sender).send(replayed.capture());
+        // 群发的实例带着耗时统计，补发不能再释放一次
+        assertNotSame(published.getValue(), replayed.getValue());
+        assertEquals(published.getValue().getText(), replayed.getValue().getText());
+    }
+
+    @Test
+    void writesEvictedSeqWhenCapacityIsSmall() {
+        WebSocketProperties properties = new WebSocketProperties();
+        properties.getReliable().setRingCapacity(4);
+        properties.getReliable().setStreamEnabled(true);
+        StringRedisTemplate redis = mock(StringRedisTemplate.class);
+        StreamOperations<String, Object, Object> stream = mock(StreamOperations.class);
+        doReturn(stream).when(redis).opsForStream();
+        ReliableDelivery delivery = new ReliableDelivery(registry, clusterBus, redis, properties);
+        try {
+            for (int i = 1; i <= 5; i++) {
+                delivery.publish("8", "m" + i);
+            }
+            ArgumentCaptor<MapRecord<String, Object, Object>> captor = ArgumentCaptor.forClass(MapRecord.class);
+            verify(stream, timeout(1000)).add(captor.capture());
+            assertEquals(RecordId.of(1, 0), captor.getValue().getId());
+            String evicted = String.valueOf(captor.getValue().getValue().get("m"));
+            assertEquals("m1", JSONObject.parseObject(evicted).getString("data"));
+        } finally {
+            delivery.shutdown();
+        }
+    }
+
+    @Test
+    void resetsWhenReplayIsNotPossible() {
+        ReliableDelivery delivery = newDelivery(16);
+        for (int i = 1; i <= 20; i++) {
+            delivery.publish("8", "m" + i);
+        }
+        SessionSender stale = mock(SessionSender.class);
+        delivery.resume(stale, "8", delivery.getEpoch(), 2, mock(Runnable.class));
+        SessionSender restarted = mock(SessionSender.class);
+        delivery.resume(restarted, "8", "other", 19, mock(Runnable.class));
+
+        for (SessionSender sender : new SessionSender[]{stale, restarted}) {
+            ArgumentCaptor<OutboundMessage> captor = ArgumentCaptor.forClass(OutboundMessage.class);
+            verify(sender).send(captor.capture());
+            JSONObject reset = JSONObject.parseObject(captor.getValue().getText());
+            assertEquals("reset", reset.getString("type"));
+            assertEquals(20, reset.getLongValue("seq"));
+        }
+    }
+
+    private void assertReplayed(SessionSender sender, int from, int to) {
+        ArgumentCaptor<OutboundMessage> captor = ArgumentCaptor.forClass(OutboundMessage.class);
+        verify(sender, times(to - from + 1)).send(captor.capture());
+        List<OutboundMessage> replayed = captor.getAllValues();
+        for (int i = 0; i < replayed.size(); i++) {
+            JSONObject frame = JSONObject.parseObject(replayed.get(i).getText());
+            assertEquals(from + i, frame.getLongValue("seq"));
+            assertEquals("m" + (from + i), frame.getString("data"));
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.yue.websocket.sever;
+
+import com.yue.websocket.common.utils.TokenBucket;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.websocket.CloseReason;
+import javax.websocket.RemoteEndpoint;
+import javax.websocket.SendHandler;
+import javax.websocket.SendResult;
+import javax.websocket.Session;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SessionSenderTest {
+
+    private Session session;
+
+    /**
+     * 记录已交给容器但尚未完成的写操作，模拟卡住的客户端
+     */
+    private final List<SendHandler> pending = new ArrayList<>();
+
+    private final List<String> written = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        session = mock(Session.class);
+        RemoteEndpoint.Async async = mock(RemoteEndpoint.Async.class);
+        when(session.getId()).thenReturn("1");
+        when(session.getAsyncRemote()).thenReturn(async);
+        doAnswer(invocation -> {
+            written.add(invocation.getArgument(0));
+            pending.add(invocation.getArgument(1));
+            return null;
+        }).when(async).sendText(anyString(), any(SendHandler.class));
+    }
+
+    @Test
+    void onlyOneWriteInFlight() {
+        SessionSender sender = new SessionSender(session, 4, OverflowPolicy.DROP_OLDEST);
+        sender.send(OutboundMessage.of("a"));
+        sender.send(OutboundMessage.of("b"));
+        assertEquals(1, written.size());
+        assertEquals(1, sender.getQueueSize());
+
+        complete();
+        assertEquals(2, written.size());
+        assertEquals("b", written.get(1));
+        assertEquals(0, sender.getQueueSize());
+    }
+
+    @Test
+    void dropOldestKeepsQueueBounded() {
+        SessionSender sender = new SessionSender(session, 2, OverflowPolicy.DROP_OLDEST);
+        for (int i = 0; i < 5; i++) {
+            sender.send(OutboundMessage.of(String.valueOf(i)));
+        }
+        assertEquals(2, sender.getQueueSize());
+        assertEquals(2, sender.getDropped());
+
+        complete();
+        complete();
+        assertEquals("3", written.get(1));
+        assertEquals("4", written.get(2));
+    }
+
+    @Test
+    void coalesceKeepsLatest() {
+        SessionSender sender = new SessionSender(session, 2, OverflowPolicy.COALESCE);
+        for (int i = 0; i < 4; i++) {
+            sender.send(OutboundMessage.of(String.valueOf(i)));
+        }
+        assertEquals(1, sender.getQueueSize());
+
+        complete();
+        assertEquals("3", written.get(1));
+    }
+
+    @Test
+    void closePolicyClosesWithViolatedPolicy() throws Exception {
+        SessionSender sender = new SessionSender(session, 1, OverflowPolicy.CLOSE);
+        sender.send(OutboundMessage.of("a"));
+        sender.send(OutboundMessage.of("b"));
+        sender.send(OutboundMessage.of("c"));
+
+        assertTrue(sender.isClosed());
+        verify(session).close(any(CloseReason.class));
+    }
+
+    private void complete() {
+        pending.remove(0).onResult(new SendResult());
+    }
+
+    @Test
+    void inboundLimitDropsExcessFrames() {
+        SessionSender sender = new SessionSender(session, 4, OverflowPolicy.DROP_OLDEST);
+        assertTrue(sender.tryAcquireInbound());
+
+        sender.setInboundLimit(new TokenBucket(0.001, 3));
+        int accepted = 0;
+        for (int i = 0; i < 10; i++) {
+            if (sender.tryAcquireInbound()) {
+                accepted++;
+            }
+        }
+        assertEquals(3, accepted);
+        assertEquals(7, sender.getInboundDropped());
+    }
+}
@@ -0,0 +1,61 @@
+package com.yue.websocket.sever;
+
+import com.alibaba.fastjson.JSONObject;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StateSyncTest {
+
+    private final SessionRegistry registry = mock(SessionRegistry.class);
+
+    private final StateSync stateSync = new StateSync(registry);
+
+    @Test
+    void pushesOnlyChangedFields() {
+        Map<String, Object> changes = new HashMap<>();
+        changes.put("count", 1L);
+        changes.put("name", "A");
+        assertTrue(stateSync.update("8", changes));
+        assertFalse(stateSync.update("8", Collections.singletonMap("count", 1L)));
+        assertTrue(stateSync.update("8", Collections.singletonMap("count", 2L)));
+
+        ArgumentCaptor<OutboundMessage> captor = ArgumentCaptor.forClass(OutboundMessage.class);
+        verify(registry, times(2)).publish(eq("8"), captor.capture());
+        JSONObject delta = JSONObject.parseObject(captor.getAllValues().get(1).getText());
+        assertEquals("delta", delta.getString("type"));
+        assertEquals(2, delta.getLongValue("seq"));
+        assertEquals(Collections.singleton("count"), delta.getJSONObject("data").keySet());
+        assertEquals(2, stateSync.getSeq("8"));
+    }
+
+    @Test
+    void newSessionReceivesFullSnapshot() {
+        stateSync.update(StateSync.GLOBAL, Collections.singletonMap("count", 5L));
+        stateSync.update(StateSync.GLOBAL, Collections.singletonMap("total", 9L));
+
+        SessionSender sender = mock(SessionSender.class);
+        when(sender.getTopics()).thenReturn(Collections.singleton("8"));
+        stateSync.sendSnapshots(sender);
+
+        ArgumentCaptor<OutboundMessage> captor = ArgumentCaptor.forClass(OutboundMessage.class);
+        verify(sender).send(captor.capture());
+        JSONObject snapshot = JSONObject.parseObject(captor.getValue().getText());
+        assertEquals("snapshot", snapshot.getString("type"));
+        assertEquals(2, snapshot.getLongValue("seq"));
+        assertEquals(5, snapshot.getJSONObject("data").getLongValue("count"));
+        assertEquals(9, snapshot.getJSONObject("data").getLongValue("total"));
+    }
+}
@@ -0,0 +1,80 @@
+package com.yue.websocket.sever;
+
+import com.yue.websocket.config.WebSocketProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.websocket.RemoteEndpoint;
+import javax.websocket.SendHandler;
+import javax.websocket.SendResult;
+import javax.websocket.Session;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class WebSocketMetricsTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final WebSocketMetrics metrics = new WebSocketMetrics(meterRegistry);
+
+    private SessionRegistry registry;
+
+    @AfterEach
+    void tearDown() {
+        registry.shutdown();
+    }
+
+    @Test
+    void recordsFanOutAfterLastRecipient() throws InterruptedException {
+        WebSocketProperties properties = new WebSocketProperties();
+        properties.getBroadcast().setShards(2);
+        registry = new SessionRegistry(properties, new MessageTracer(properties), metrics);
+
+        List<SendHandler> pending = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Session session = mock(Session.class);
+            RemoteEndpoint.Async async = mock(RemoteEndpoint.Async.class);
+            when(session.getId()).thenReturn(String.valueOf(i));
+            when(session.getAsyncRemote()).thenReturn(async);
+            doAnswer(invocation -> {
+                synchronized (pending) {
+                    pending.add(invocation.getArgument(1));
+                }
+                return null;
+            }).when(async).sendText(anyString(), any(SendHandler.class));
+            registry.register(new SessionSender(session, 4, OverflowPolicy.DROP_OLDEST, null, metrics));
+        }
+        assertEquals(3, meterRegistry.get("websocket.sessions.active").gauge().value());
+
+        registry.broadcast(OutboundMessage.of("你好"));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            synchronized (pending) {
+                if (pending.size() == 3) {
+                    break;
+                }
+            }
+            Thread.sleep(5);
+        }
+        assertEquals(3, pending.size());
+
+        // 前两个接收者写完时群发尚未结束
+        pending.get(0).onResult(new SendResult());
+        pending.get(1).onResult(new SendResult());
+        assertEquals(0, meterRegistry.get("websocket.broadcast.fanout").timer().count());
+
+        pending.get(2).onResult(new SendResult());
+        assertEquals(1, meterRegistry.get("websocket.broadcast.fanout").timer().count());
+        assertEquals(3, meterRegistry.get("websocket.messages.outbound").counter().count());
+        assertEquals(18, meterRegistry.get("websocket.bytes.outbound").counter().count());
+    }
+}
@@ -0,0 +1,68 @@
+package com.yue.websocket.sever.codec;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompactBinaryCodecTest {
+
+    private final CompactBinaryCodec codec = new CompactBinaryCodec(Arrays.asList("storeId", "merCode", "count"));
+
+    @Test
+    void roundTripsJsonWithDictionaryKeys() {
+        String json = "{\"storeId\":\"S001\",\"merCode\":\"M01\",\"count\":123456,\"price\":9.5,"
+                + "\"ok\":true,\"tags\":[\"a\",null,-3]}";
+        ByteBuffer frame = codec.encode(json);
+        assertTrue(frame.remaining() < json.getBytes(StandardCharsets.UTF_8).length / 2 + 10);
+
+        JSONObject decoded = JSON.parseObject(codec.decode(frame));
+        JSONObject expected = JSON.parseObject(json);
+        assertEquals(expected.getString("storeId"), decoded.getString("storeId"));
+        assertEquals(expected.getLong("count"), decoded.getLong("count"));
+        assertEquals(expected.getDouble("price"), decoded.getDouble("price"));
+        assertEquals(expected.getBoolean("ok"), decoded.getBoolean("ok"));
+        assertEquals(expected.getJSONArray("tags").toJSONString(), decoded.getJSONArray("tags").toJSONString());
+    }
+
+    @Test
+    void encodesPlainTextAsString() {
+        String text = "+++++++++实时推送的消息++++++42";
+        assertEquals(text, codec.decode(codec.encode(text)));
+    }
+
+    @Test
+    void rejectsOversizedOrNegativeLengths() {
+        // str32 / array32 / map32，声明长度远超帧长度或为负数
+        for (int code : new int[]{0xdb, 0xdd, 0xdf}) {
+            assertRejected(code, 0x7f, 0xff, 0xff, 0xff);
+            assertRejected(code, 0x80, 0x00, 0x00, 0x00);
+        }
+    }
+
+    @Test
+    void rejectsLengthsAboveConfiguredMaximum() {
+        CompactBinaryCodec limited = new CompactBinaryCodec(Arrays.asList("storeId"), 4);
+        assertEquals("abcd", limited.decode(limited.encode("abcd")));
+        assertThrows(IllegalArgumentException.class, () -> limited.decode(limited.encode("abcde")));
+        assertThrows(IllegalArgumentException.class, () -> limited.decode(limited.encode("[1,2,3,4,5]")));
+        assertThrows(IllegalArgumentException.class,
+                () -> limited.decode(limited.encode("{\"a\":1,\"b\":2,\"c\":3,\"d\":4,\"e\":5}")));
+    }
+
+    private void assertRejected(int... bytes) {
+        ByteBuffer frame = ByteBuffer.allocate(bytes.length);
+        for (int b : bytes) {
+            frame.put((byte) b);
+        }
+        frame.flip();
+        assertThrows(IllegalArgumentException.class, () -> codec.decode(frame));
+    }
+}